@@ -1,46 +1,582 @@
 package com.arnonse.snmp23;
 
+import com.arnonse.snmp23.analytics.AnalyticsHttpServer;
+import com.arnonse.snmp23.analytics.TrapAnalytics;
+import com.arnonse.snmp23.config.AnalyticsConfig;
+import com.arnonse.snmp23.config.ConfigLoader;
 import com.arnonse.snmp23.config.ListenerConfig;
+import com.arnonse.snmp23.config.SenderTransportConfig;
+import com.arnonse.snmp23.config.ShutdownConfig;
 import com.arnonse.snmp23.config.SnmpV3Config;
+import com.arnonse.snmp23.config.TenantConfig;
+import com.arnonse.snmp23.config.WorkerConfig;
 import com.arnonse.snmp23.listener.SnmpTrapListener;
+import com.arnonse.snmp23.model.TrapEvent;
+import com.arnonse.snmp23.sender.SenderPool;
 import com.arnonse.snmp23.sender.SnmpV3TrapSender;
+import com.arnonse.snmp23.service.ConfigWatcher;
+import com.arnonse.snmp23.service.EngineState;
 import com.arnonse.snmp23.service.EngineStateManager;
+import com.arnonse.snmp23.service.TrapSpillStore;
+import com.arnonse.snmp23.tenant.TenantPipeline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snmp4j.util.ThreadPool;
 
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
 
+/**
+ * Hosts one listener per tenant. All tenants share the decode workers, the send workers and
+ * the SNMPv3 senders; each tenant keeps its own queue and rate limit.
+ * Tenants can be added, removed or changed at runtime with {@link #reload(List)}.
+ */
 public class SnmpForwarderApplication {
     private static final Logger logger = LoggerFactory.getLogger(SnmpForwarderApplication.class);
+    // How long stop() lets the send workers finish the trap they are sending after the drain timeout
+    private static final long IN_FLIGHT_GRACE_MILLIS = 500;
 
-    private final SnmpTrapListener listener;
-    private final SnmpV3TrapSender sender;
+    private final List<TenantConfig> tenants;
+    private final WorkerConfig workerConfig;
+    private final ShutdownConfig shutdownConfig;
+    private final TrapSpillStore spillStore;
+    private final Map<String, TenantSlot> slots = new LinkedHashMap<>();
+    private final SenderPool senders;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final TrapAnalytics analytics;
+    private final AnalyticsHttpServer analyticsServer;
+    private ThreadPool decodeWorkers;
+    private ExecutorService sendWorkers;
+    private Function<String, EngineState> engineStart;
+    private Thread replayThread;
 
     public SnmpForwarderApplication(ListenerConfig listenerConfig, SnmpV3Config senderConfig) {
-        this.listener = new SnmpTrapListener(listenerConfig);
-        this.sender = new SnmpV3TrapSender(senderConfig);
+        this(listenerConfig, senderConfig, AnalyticsConfig.builder().build());
+    }
+
+    public SnmpForwarderApplication(ListenerConfig listenerConfig, SnmpV3Config senderConfig,
+                                    AnalyticsConfig analyticsConfig) {
+        this(List.of(TenantConfig.builder().listener(listenerConfig).v3(senderConfig).build()),
+                WorkerConfig.builder().build(), analyticsConfig);
+    }
+
+    public SnmpForwarderApplication(List<TenantConfig> tenants, WorkerConfig workerConfig,
+                                    AnalyticsConfig analyticsConfig) {
+        this(tenants, workerConfig, analyticsConfig, ShutdownConfig.builder().build());
+    }
+
+    public SnmpForwarderApplication(List<TenantConfig> tenants, WorkerConfig workerConfig,
+                                    AnalyticsConfig analyticsConfig, ShutdownConfig shutdownConfig) {
+        this(tenants, workerConfig, analyticsConfig, shutdownConfig, SenderTransportConfig.builder().build());
+    }
+
+    public SnmpForwarderApplication(List<TenantConfig> tenants, WorkerConfig workerConfig,
+                                    AnalyticsConfig analyticsConfig, ShutdownConfig shutdownConfig,
+                                    SenderTransportConfig senderTransportConfig) {
+        this.tenants = List.copyOf(tenants);
+        this.workerConfig = workerConfig;
+        this.shutdownConfig = shutdownConfig;
+        this.senders = new SenderPool(senderTransportConfig, workerConfig.sendThreads());
+        this.spillStore = new TrapSpillStore(shutdownConfig.spillFile());
+        if (analyticsConfig.enabled()) {
+            this.analytics = new TrapAnalytics(analyticsConfig);
+            this.analyticsServer = new AnalyticsHttpServer(analytics);
+        } else {
+            this.analytics = null;
+            this.analyticsServer = null;
+        }
     }
 
     public void start(int bootCount) throws IOException {
-        logger.info("Starting SNMP Trap Forwarder");
+        start(engineId -> new EngineState(bootCount, 0));
+    }
 
-        sender.initialize(bootCount);
+    /**
+     * Starts all tenants. {@code engineStart} is called once per distinct SNMPv3 engine ID.
+     */
+    public synchronized void start(Function<String, EngineState> engineStart) throws IOException {
+        this.engineStart = engineStart;
+        logger.info("Starting SNMP Trap Forwarder with {} tenant(s)", tenants.size());
 
-        listener.registerTrapHandler(trapEvent -> {
-            logger.info("Received trap event: {}", trapEvent);
-            sender.sendTrap(trapEvent);
-        });
+        decodeWorkers = ThreadPool.create("SnmpTrapListener", workerConfig.decodeThreads());
+        AtomicInteger sendThreadIndex = new AtomicInteger();
+        sendWorkers = Executors.newFixedThreadPool(workerConfig.sendThreads(),
+                r -> new Thread(r, "SnmpTrapSender." + sendThreadIndex.getAndIncrement()));
+
+        if (analytics != null) {
+            analytics.start();
+            analyticsServer.start();
+        }
+
+        for (TenantConfig tenant : tenants) {
+            TenantSlot slot = new TenantSlot(newPipeline(tenant));
+            slot.listener = newListener(tenant.listener(), slot);
+            slot.listener.start();
+            slots.put(tenant.name(), slot);
+        }
+
+        // Forward what the previous run could not send before it stopped, next to live traffic
+        replayThread = Thread.ofVirtual().name("SpillReplay").start(this::replaySpill);
 
-        listener.start();
         logger.info("SNMP Trap Forwarder started successfully");
     }
 
+    private void replaySpill() {
+        try {
+            spillStore.replay((tenant, trapEvent) -> {
+                TenantSlot slot;
+                synchronized (this) {
+                    slot = slots.get(tenant);
+                }
+                if (slot == null) {
+                    logger.warn("Dropping spilled trap of unknown tenant {}", tenant);
+                    return;
+                }
+                try {
+                    // Waits for queue space, so a spill larger than the queue is not dropped
+                    slot.resubmit(trapEvent);
+                } catch (InterruptedException e) {
+                    // Stops the replay, which keeps the remaining traps on disk
+                    Thread.currentThread().interrupt();
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Failed to replay spilled traps", e);
+        }
+    }
+
+    /**
+     * Interrupts a replay still running, which keeps its remaining traps in the spill file.
+     */
+    private void stopReplay() {
+        Thread replay;
+        synchronized (this) {
+            replay = replayThread;
+            replayThread = null;
+        }
+        if (replay == null) {
+            return;
+        }
+        replay.interrupt();
+        try {
+            replay.join(shutdownConfig.drainTimeoutMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Applies a new tenant list without a restart. Changed profiles get a new pipeline that is
+     * swapped in atomically; the old pipeline finishes sending what it accepted with the old
+     * profile. A listener is only rebound if its bind address or port changed. On a new port the
+     * new socket is bound first and the old one keeps reading until it goes quiet; on the same
+     * port the old socket has to be closed first. TCP settings alone are changed without touching
+     * the UDP socket. A listener that cannot be rebound keeps running and does not hold back the
+     * profile change. A renamed tenant keeps the listener of its old name. Engine boots are not
+     * incremented for engines that are already running.
+     */
+    public void reload(List<TenantConfig> newTenants) {
+        reloadLock.lock();
+        try {
+            List<Retirement> retiring = new ArrayList<>();
+            List<SnmpTrapListener> draining = new ArrayList<>();
+            List<SnmpTrapListener> unbinding = new ArrayList<>();
+
+            synchronized (this) {
+                if (engineStart == null) {
+                    throw new IllegalStateException("Forwarder is not running");
+                }
+                logger.info("Reloading configuration with {} tenant(s)", newTenants.size());
+                removeTenants(newTenants, retiring, unbinding);
+                for (TenantConfig tenant : newTenants) {
+                    applyTenant(tenant, retiring, draining);
+                }
+            }
+
+            // Outside the monitor, so waiting here blocks neither stop() nor the engine state checkpoints
+            long deadline = System.currentTimeMillis() + shutdownConfig.drainTimeoutMillis();
+            for (SnmpTrapListener listener : draining) {
+                try {
+                    // Peers not yet reconfigured still send to the old port; keep reading until it goes quiet
+                    listener.awaitQuiet(shutdownConfig.quietPeriodMillis(), deadline);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                unbinding.add(listener);
+            }
+            for (SnmpTrapListener listener : unbinding) {
+                try {
+                    listener.stop();
+                } catch (IOException e) {
+                    logger.error("Failed to stop listener on port {}", listener.getConfig().listenPort(), e);
+                }
+            }
+            try {
+                // In parallel, so N retiring pipelines take one drain timeout, not N
+                List<Thread> retirements = new ArrayList<>();
+                for (Retirement retirement : retiring) {
+                    retirements.add(Thread.ofVirtual().name("Retire." + retirement.pipeline().getTenant().name())
+                            .start(() -> retireReplaced(retirement, deadline)));
+                }
+                for (Thread retirement : retirements) {
+                    retirement.join();
+                }
+                synchronized (this) {
+                    Set<SnmpV3TrapSender> inUse = new HashSet<>();
+                    for (TenantSlot slot : slots.values()) {
+                        inUse.add(slot.pipeline.getSender());
+                    }
+                    senders.closeUnused(inUse);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                logger.error("Failed to close retired senders", e);
+            }
+            logger.info("Configuration reloaded");
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the tenants missing from {@code newTenants}. A new tenant that listens where a
+     * removed one did takes over its slot, so the running socket is kept and, as with a renamed
+     * tenant, no trap is lost. Other removed listeners in the way of a new one are stopped here,
+     * before anything binds; the rest are stopped after the swap.
+     */
+    private void removeTenants(List<TenantConfig> newTenants, List<Retirement> retiring,
+                               List<SnmpTrapListener> unbinding) {
+        Set<String> names = new HashSet<>();
+        for (TenantConfig tenant : newTenants) {
+            names.add(tenant.name());
+        }
+        Map<String, TenantSlot> removed = new HashMap<>();
+        slots.entrySet().removeIf(entry -> {
+            if (names.contains(entry.getKey())) {
+                return false;
+            }
+            removed.put(entry.getKey(), entry.getValue());
+            return true;
+        });
+
+        for (TenantConfig tenant : newTenants) {
+            if (slots.containsKey(tenant.name())) {
+                continue;
+            }
+            for (Iterator<Map.Entry<String, TenantSlot>> it = removed.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, TenantSlot> entry = it.next();
+                if (entry.getValue().listener.getConfig().conflictsWith(tenant.listener())) {
+                    // applyTenant then swaps in the new profile and rebinds if the listener changed
+                    slots.put(tenant.name(), entry.getValue());
+                    it.remove();
+                    logger.info("Tenant {} takes over the listener of removed tenant {}", tenant.name(), entry.getKey());
+                    break;
+                }
+            }
+        }
+
+        for (Map.Entry<String, TenantSlot> entry : removed.entrySet()) {
+            SnmpTrapListener listener = entry.getValue().listener;
+            if (newTenants.stream().anyMatch(tenant -> listener.getConfig().conflictsWith(tenant.listener()))) {
+                try {
+                    listener.stop();
+                } catch (IOException e) {
+                    logger.error("Failed to stop listener on port {}", listener.getConfig().listenPort(), e);
+                }
+            } else {
+                unbinding.add(listener);
+            }
+            retiring.add(new Retirement(entry.getValue().pipeline, null));
+            logger.info("Removed tenant {}", entry.getKey());
+        }
+    }
+
+    /**
+     * Retires a pipeline replaced or removed by a reload. What it could not send in time goes to
+     * the slot's current pipeline; only traps of a removed tenant are spilled.
+     */
+    private void retireReplaced(Retirement retirement, long deadline) {
+        TenantPipeline pipeline = retirement.pipeline();
+        TenantSlot successor = retirement.successor();
+        String tenant = pipeline.getTenant().name();
+        try {
+            if (pipeline.retire(Math.max(0, deadline - System.currentTimeMillis()))) {
+                return;
+            }
+            List<TrapEvent> remaining = pipeline.takeRemaining();
+            int handedOver = 0;
+            if (successor != null) {
+                while (handedOver < remaining.size() && successor.resubmit(remaining.get(handedOver))) {
+                    handedOver++;
+                }
+                logger.info("Handed {} unsent traps of tenant {} to its new pipeline", handedOver, tenant);
+            }
+            spillStore.spill(tenant, remaining.subList(handedOver, remaining.size()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Failed to spill traps of tenant {}", tenant, e);
+        }
+    }
+
+    private void applyTenant(TenantConfig tenant, List<Retirement> retiring, List<SnmpTrapListener> draining) {
+        TenantSlot slot = slots.get(tenant.name());
+        if (slot == null) {
+            try {
+                slot = new TenantSlot(newPipeline(tenant));
+                slot.listener = newListener(tenant.listener(), slot);
+                slot.listener.start();
+                slots.put(tenant.name(), slot);
+                logger.info("Added tenant {}", tenant.name());
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to add tenant {}", tenant.name(), e);
+                if (slot != null) {
+                    retiring.add(new Retirement(slot.pipeline, null));
+                }
+            }
+            return;
+        }
+
+        if (!slot.pipeline.getTenant().equals(tenant)) {
+            try {
+                // Prepare everything, including key localization, before touching live traffic
+                TenantPipeline pipeline = newPipeline(tenant);
+                retiring.add(new Retirement(slot.pipeline, slot));
+                slot.pipeline = pipeline;
+                logger.info("Updated tenant {}", tenant.name());
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to apply SNMPv3 profile of tenant {}, keeping previous", tenant.name(), e);
+            }
+        }
+
+        // Compared with the running listener, so a rebind that failed is retried on the next reload
+        if (!slot.listener.getConfig().equals(tenant.listener())) {
+            try {
+                rebind(tenant.name(), tenant.listener(), slot, draining);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to rebind listener of tenant {} to {}:{}, keeping previous",
+                        tenant.name(), tenant.listener().bindAddress(), tenant.listener().listenPort(), e);
+            }
+        }
+    }
+
+    private void rebind(String tenant, ListenerConfig wanted, TenantSlot slot, List<SnmpTrapListener> draining)
+            throws IOException {
+        ListenerConfig current = slot.listener.getConfig();
+        if (current.listenPort() != wanted.listenPort()) {
+            SnmpTrapListener listener = newListener(wanted, slot);
+            listener.start();
+            draining.add(slot.listener);
+            slot.listener = listener;
+        } else if (current.bindAddress().equals(wanted.bindAddress())) {
+            slot.listener.reconfigureTcp(wanted);
+        } else {
+            // Same port on another address: the old socket must be closed before the new one can bind
+            slot.listener.stop();
+            SnmpTrapListener listener = newListener(wanted, slot);
+            try {
+                listener.start();
+            } catch (IOException | RuntimeException e) {
+                SnmpTrapListener restored = newListener(current, slot);
+                restored.start();
+                slot.listener = restored;
+                throw e;
+            }
+            slot.listener = listener;
+        }
+        logger.info("Tenant {} now listens on {}:{}", tenant, wanted.bindAddress(), wanted.listenPort());
+    }
+
+    /**
+     * Stops in stages so that a planned restart loses nothing: listeners keep reading until their
+     * receive buffers are empty, then close; decoding and the tenant queues are drained and sent;
+     * only then are the transports closed. Whatever is not sent within the configured drain
+     * timeout is spilled to disk and replayed on the next start.
+     */
     public void stop() throws IOException {
-        listener.stop();
-        sender.close();
+        stopReplay();
+        // Let a reload in progress finish retiring its pipelines first
+        reloadLock.lock();
+        try {
+            stopTenants();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private synchronized void stopTenants() throws IOException {
+        if (engineStart == null) {
+            logger.warn("Forwarder is not running");
+            return;
+        }
+        long deadline = System.currentTimeMillis() + shutdownConfig.drainTimeoutMillis();
+        // Under steady load traffic never goes quiet; keep most of the budget for sending
+        long readDeadline = Math.min(deadline, System.currentTimeMillis() + shutdownConfig.maxReadMillis());
+        logger.info("Stopping SNMP Trap Forwarder, draining for up to {} ms", shutdownConfig.drainTimeoutMillis());
+
+        try {
+            // 1. Empty the socket receive buffers, then stop accepting
+            for (TenantSlot slot : slots.values()) {
+                if (!slot.listener.awaitQuiet(shutdownConfig.quietPeriodMillis(), readDeadline)) {
+                    logger.warn("Traps still arriving on port {} at shutdown", slot.listener.getConfig().listenPort());
+                }
+            }
+            for (TenantSlot slot : slots.values()) {
+                slot.listener.stop();
+            }
+
+            // 2. Let the decode workers hand off what they already read
+            while (!decodeWorkers.isIdle() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+
+            // 3. Send everything queued
+            for (TenantSlot slot : slots.values()) {
+                slot.pipeline.retire(Math.max(0, deadline - System.currentTimeMillis()));
+            }
+            sendWorkers.shutdown();
+            sendWorkers.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // 4. Spill the remainder, including traps the send workers polled but could not send
+        Map<TenantSlot, List<TrapEvent>> unsent = new LinkedHashMap<>();
+        for (TenantSlot slot : slots.values()) {
+            unsent.put(slot, slot.pipeline.takeRemaining());
+        }
+        sendWorkers.shutdown();
+        try {
+            // With the queues empty each worker only finishes its current trap; interrupting it
+            // would close the shared sender sockets
+            if (!sendWorkers.awaitTermination(IN_FLIGHT_GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+                unsent.forEach((slot, remaining) -> {
+                    TrapEvent inFlight = slot.pipeline.getInFlight();
+                    if (inFlight != null) {
+                        // May have reached the target already; sending it twice beats losing it
+                        remaining.add(inFlight);
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        unsent.forEach((slot, remaining) -> {
+            try {
+                spillStore.spill(slot.pipeline.getTenant().name(), remaining);
+            } catch (IOException e) {
+                logger.error("Failed to spill traps of tenant {}", slot.pipeline.getTenant().name(), e);
+            }
+        });
+        sendWorkers.shutdownNow();
+
+        // 5. Close the transports
+        senders.close();
+        decodeWorkers.stop();
+        slots.clear();
+        engineStart = null;
+
+        if (analytics != null) {
+            analyticsServer.stop();
+            analytics.stop();
+        }
+        logger.info("SNMP Trap Forwarder stopped");
+    }
+
+    /**
+     * Current boots and engine time of every running engine, keyed by configured engine ID.
+     */
+    public synchronized Map<String, EngineState> engineStates() {
+        Map<String, EngineState> states = new LinkedHashMap<>();
+        for (TenantSlot slot : slots.values()) {
+            SnmpV3TrapSender sender = slot.pipeline.getSender();
+            states.put(sender.getConfig().engineId(), new EngineState(sender.getEngineBoots(), sender.getEngineTime()));
+        }
+        return states;
+    }
+
+    private TenantPipeline newPipeline(TenantConfig tenant) throws IOException {
+        SnmpV3TrapSender sender = senders.senderFor(tenant.v3(), engineStart);
+        return new TenantPipeline(tenant, sender, sendWorkers);
+    }
+
+    private SnmpTrapListener newListener(ListenerConfig listenerConfig, TenantSlot slot) {
+        SnmpTrapListener listener = new SnmpTrapListener(listenerConfig, decodeWorkers);
+        listener.registerTrapHandler(trapEvent -> {
+            // Read per trap, as a renamed tenant takes over the slot with its listener
+            logger.info("Received trap event for tenant {}: {}", slot.pipeline.getTenant().name(), trapEvent);
+            slot.submit(trapEvent);
+        });
+        if (analytics != null) {
+            listener.registerTrapHandler(analytics::record);
+        }
+        return listener;
+    }
+
+    /**
+     * Live state of one tenant. The pipeline reference is swapped on reload while
+     * listener threads keep submitting.
+     */
+    /**
+     * A pipeline to retire and the slot that takes over its traps, or null for a removed tenant.
+     */
+    private record Retirement(TenantPipeline pipeline, TenantSlot successor) {
+    }
+
+    private static class TenantSlot {
+        private volatile TenantPipeline pipeline;
+        private SnmpTrapListener listener;
+
+        TenantSlot(TenantPipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        /**
+         * Queues a previously accepted trap, waiting for space; see {@link TenantPipeline#resubmit}.
+         *
+         * @return false if the tenant was removed
+         */
+        boolean resubmit(TrapEvent trapEvent) throws InterruptedException {
+            TenantPipeline current = pipeline;
+            while (!current.resubmit(trapEvent)) {
+                if (current == pipeline) {
+                    return false;
+                }
+                current = pipeline;
+            }
+            return true;
+        }
+
+        void submit(TrapEvent trapEvent) {
+            TenantPipeline current = pipeline;
+            // A pipeline is retired only after its successor is published, so retry on the new one
+            while (!current.submit(trapEvent)) {
+                if (current == pipeline) {
+                    logger.warn("Dropping trap for removed tenant {}", current.getTenant().name());
+                    return;
+                }
+                current = pipeline;
+            }
+        }
     }
 
     public static void main(String[] args) {
@@ -49,32 +585,40 @@ public class SnmpForwarderApplication {
         try (InputStream input = new FileInputStream(configPath)) {
             props.load(input);
 
-            ListenerConfig listenerConfig = ListenerConfig.builder()
-                    .bindAddress(props.getProperty("listener.bindAddress", "0.0.0.0"))
-                    .listenPort(Integer.parseInt(props.getProperty("listener.port", "1162")))
-                    .build();
-
-            SnmpV3Config senderConfig = SnmpV3Config.builder()
-                    .targetHost(props.getProperty("v3.targetHost"))
-                    .targetPort(Integer.parseInt(props.getProperty("v3.targetPort", "162")))
-                    .username(props.getProperty("v3.username"))
-                    .authPassword(props.getProperty("v3.authPassword"))
-                    .privPassword(props.getProperty("v3.privPassword"))
-                    .engineId(props.getProperty("v3.engineId"))
-                    .authProtocol(SnmpV3Config.AuthProtocol.valueOf(props.getProperty("v3.authProtocol", "SHA")))
-                    .privProtocol(SnmpV3Config.PrivProtocol.valueOf(props.getProperty("v3.privProtocol", "AES")))
-                    .build();
+            List<TenantConfig> tenants = ConfigLoader.tenants(props);
+            WorkerConfig workerConfig = ConfigLoader.workers(props);
+            AnalyticsConfig analyticsConfig = ConfigLoader.analytics(props);
+            ShutdownConfig shutdownConfig = ConfigLoader.shutdown(props);
+            SenderTransportConfig senderTransportConfig = ConfigLoader.senderTransport(props);
 
             EngineStateManager stateManager = new EngineStateManager(props.getProperty("state.file", "engine-state.json"));
-            int boots = stateManager.incrementAndGetBoots(senderConfig.engineId());
+            boolean resumeEngineTime = Boolean.parseBoolean(props.getProperty("state.resumeEngineTime", "false"));
+            long checkpointSeconds = Long.parseLong(props.getProperty("state.checkpointSeconds", "60"));
 
-            SnmpForwarderApplication app = new SnmpForwarderApplication(listenerConfig, senderConfig);
+            SnmpForwarderApplication app = new SnmpForwarderApplication(tenants, workerConfig, analyticsConfig,
+                    shutdownConfig, senderTransportConfig);
+
+            ScheduledExecutorService checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "EngineStateCheckpoint");
+                t.setDaemon(true);
+                return t;
+            });
 
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                checkpointer.shutdownNow();
+                stateManager.checkpoint(app.engineStates());
                 try { app.stop(); } catch (IOException e) { logger.error("Shutdown error", e); }
             }));
 
-            app.start(boots);
+            app.start(engineId -> stateManager.start(engineId, resumeEngineTime));
+            checkpointer.scheduleAtFixedRate(() -> stateManager.checkpoint(app.engineStates()),
+                    checkpointSeconds, checkpointSeconds, TimeUnit.SECONDS);
+
+            if (Boolean.parseBoolean(props.getProperty("config.watch", "false"))) {
+                ConfigWatcher watcher = new ConfigWatcher(Path.of(configPath), props,
+                        newProps -> app.reload(ConfigLoader.tenants(newProps)));
+                watcher.start();
+            }
             Thread.currentThread().join();
 
         } catch (Exception e) {
@@ -82,4 +626,4 @@ public class SnmpForwarderApplication {
             System.exit(1);
         }
     }
-}
\ No newline at end of file
+}
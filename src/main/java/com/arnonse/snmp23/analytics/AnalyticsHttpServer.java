@@ -0,0 +1,85 @@
+package com.arnonse.snmp23.analytics;
+
+import com.arnonse.snmp23.config.AnalyticsConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serves the {@link TrapAnalytics} top-N tables as JSON on a local HTTP endpoint.
+ * <pre>GET /analytics/top?n=10</pre>
+ */
+public class AnalyticsHttpServer {
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsHttpServer.class);
+    private final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final TrapAnalytics analytics;
+    private HttpServer server;
+
+    public AnalyticsHttpServer(TrapAnalytics analytics) {
+        this.analytics = analytics;
+    }
+
+    public void start() throws IOException {
+        AnalyticsConfig config = analytics.getConfig();
+        server = HttpServer.create(new InetSocketAddress(config.bindAddress(), config.port()), 0);
+        server.createContext("/analytics/top", this::handleTop);
+        server.start();
+        logger.info("Analytics endpoint listening on http://{}:{}/analytics/top",
+                config.bindAddress(), server.getAddress().getPort());
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    private void handleTop(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            int n = analytics.getConfig().defaultTopN();
+            String query = exchange.getRequestURI().getQuery();
+            if (query != null) {
+                for (String param : query.split("&")) {
+                    if (param.startsWith("n=")) {
+                        try {
+                            n = Math.max(1, Integer.parseInt(param.substring(2)));
+                        } catch (NumberFormatException e) {
+                            exchange.sendResponseHeaders(400, -1);
+                            return;
+                        }
+                    }
+                }
+            }
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("windowSeconds", analytics.getConfig().windowSeconds());
+            body.put("total", analytics.total());
+            body.put("sources", analytics.top(TrapAnalytics.Dimension.SOURCE, n));
+            body.put("trapOids", analytics.top(TrapAnalytics.Dimension.TRAP_OID, n));
+            body.put("communities", analytics.top(TrapAnalytics.Dimension.COMMUNITY, n));
+
+            byte[] json = mapper.writeValueAsBytes(body);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, json.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(json);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.arnonse.snmp23.analytics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free count-min sketch over string keys.
+ * Memory is fixed at {@code depth * width} counters regardless of key cardinality;
+ * estimates never undercount and overcount by at most {@code total * e / width}
+ * with probability {@code 1 - e^-depth}.
+ * <p>
+ * Row indexes come from two independently seeded 64-bit hashes of the key's characters
+ * (Kirsch-Mitzenmacher), not from {@link String#hashCode()}, so keys built to collide on
+ * {@code hashCode} do not collide in every row.
+ */
+public class CountMinSketch {
+    private static final int MAX_DEPTH = 16;
+    private static final long SEED_1 = 0x9E3779B97F4A7C15L;
+    private static final long SEED_2 = 0xC2B2AE3D27D4EB4FL;
+
+    private final int width;
+    private final int depth;
+    private final int mask;
+    private final AtomicLongArray counters;
+
+    public CountMinSketch(int width, int depth) {
+        if (depth <= 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Sketch depth must be between 1 and " + MAX_DEPTH);
+        }
+        // Round width up to a power of two so the row index is a mask, not a modulo
+        this.width = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.depth = depth;
+        this.mask = this.width - 1;
+        this.counters = new AtomicLongArray(this.width * depth);
+    }
+
+    public void add(String key, long count) {
+        long h1 = hash64(key, SEED_1);
+        long h2 = hash64(key, SEED_2) | 1;
+        for (int row = 0; row < depth; row++) {
+            counters.addAndGet(row * width + index(h1, h2, row), count);
+        }
+    }
+
+    public long estimate(String key) {
+        long h1 = hash64(key, SEED_1);
+        long h2 = hash64(key, SEED_2) | 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters.get(row * width + index(h1, h2, row)));
+        }
+        return min;
+    }
+
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    private int index(long h1, long h2, int row) {
+        // Use the high bits, which fmix64 mixes best
+        return (int) ((h1 + row * h2) >>> 32) & mask;
+    }
+
+    /**
+     * Seeded 64-bit hash of the key's characters: murmur3-style block mixing and the fmix64 finalizer.
+     */
+    static long hash64(String key, long seed) {
+        long h = seed ^ (key.length() * 0x87C37B91114253D5L);
+        for (int i = 0; i < key.length(); i++) {
+            long k = key.charAt(i) * 0x87C37B91114253D5L;
+            k = Long.rotateLeft(k, 31) * 0x4CF5AD432745937FL;
+            h ^= k;
+            h = Long.rotateLeft(h, 27) * 5 + 0x52DCE729;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
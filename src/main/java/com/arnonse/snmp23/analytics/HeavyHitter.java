@@ -0,0 +1,7 @@
+package com.arnonse.snmp23.analytics;
+
+/**
+ * A single row of a top-N table: the key and its estimated count over the window.
+ */
+public record HeavyHitter(String key, long count) {
+}
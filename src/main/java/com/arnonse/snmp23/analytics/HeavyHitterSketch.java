@@ -0,0 +1,52 @@
+package com.arnonse.snmp23.analytics;
+
+import java.util.Set;
+
+/**
+ * Fixed-memory frequency summary for one dimension (e.g. trap source) in one time bucket.
+ * Counts go to a lock-free {@link CountMinSketch}; candidate heavy hitters are tracked in
+ * space-saving summaries striped by thread so concurrent dispatcher threads rarely contend.
+ */
+class HeavyHitterSketch {
+    private final CountMinSketch sketch;
+    private final SpaceSavingSummary[] stripes;
+    private final int stripeMask;
+
+    HeavyHitterSketch(int width, int depth, int capacity, int stripeCount) {
+        this.sketch = new CountMinSketch(width, depth);
+        this.stripes = new SpaceSavingSummary[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new SpaceSavingSummary(capacity);
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    void add(String key) {
+        sketch.add(key, 1);
+        SpaceSavingSummary stripe = stripes[(int) Thread.currentThread().threadId() & stripeMask];
+        synchronized (stripe) {
+            stripe.add(key, 1);
+        }
+    }
+
+    long estimate(String key) {
+        return sketch.estimate(key);
+    }
+
+    void collectCandidates(Set<String> candidates) {
+        for (SpaceSavingSummary stripe : stripes) {
+            synchronized (stripe) {
+                stripe.forEachKey(candidates::add);
+            }
+        }
+    }
+
+    void clear() {
+        sketch.clear();
+        for (SpaceSavingSummary stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.arnonse.snmp23.analytics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Space-saving heavy-hitter summary (Metwally et al.) holding at most {@code capacity} keys.
+ * When full, a new key replaces the current minimum and inherits its count as error.
+ * Not thread-safe; callers are expected to stripe instances per thread.
+ */
+class SpaceSavingSummary {
+    private final int capacity;
+    private final Map<String, long[]> counters;
+
+    SpaceSavingSummary(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    void add(String key, long count) {
+        long[] entry = counters.get(key);
+        if (entry != null) {
+            entry[0] += count;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(key, new long[]{count, 0});
+            return;
+        }
+
+        String minKey = null;
+        long[] minEntry = null;
+        for (Map.Entry<String, long[]> e : counters.entrySet()) {
+            if (minEntry == null || e.getValue()[0] < minEntry[0]) {
+                minKey = e.getKey();
+                minEntry = e.getValue();
+            }
+        }
+        counters.remove(minKey);
+        // Reuse the evicted slot: error is the count the new key may have inherited
+        minEntry[1] = minEntry[0];
+        minEntry[0] += count;
+        counters.put(key, minEntry);
+    }
+
+    void forEachKey(Consumer<String> action) {
+        counters.keySet().forEach(action);
+    }
+
+    void clear() {
+        counters.clear();
+    }
+}
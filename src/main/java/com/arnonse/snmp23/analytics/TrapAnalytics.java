@@ -0,0 +1,171 @@
+package com.arnonse.snmp23.analytics;
+
+import com.arnonse.snmp23.config.AnalyticsConfig;
+import com.arnonse.snmp23.model.TrapEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snmp4j.PDU;
+import org.snmp4j.PDUv1;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.IpAddress;
+import org.snmp4j.smi.VariableBinding;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streaming top-N analytics over received traps.
+ * Keeps a ring of time buckets covering the rolling window; each bucket holds one
+ * fixed-size {@link HeavyHitterSketch} per {@link Dimension}. The oldest bucket is
+ * cleared and reused on every rotation, so memory does not grow with cardinality.
+ */
+public class TrapAnalytics {
+    private static final Logger logger = LoggerFactory.getLogger(TrapAnalytics.class);
+
+    public enum Dimension {
+        SOURCE, TRAP_OID, COMMUNITY
+    }
+
+    private final AnalyticsConfig config;
+    private final Bucket[] buckets;
+    private volatile int current = 0;
+    private ScheduledExecutorService rotator;
+
+    public TrapAnalytics(AnalyticsConfig config) {
+        this.config = config;
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+        this.buckets = new Bucket[config.bucketCount()];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket(config, Math.min(stripes, 16));
+        }
+    }
+
+    /**
+     * Starts rotating the window buckets.
+     */
+    public synchronized void start() {
+        if (rotator != null) {
+            return;
+        }
+        long bucketMillis = config.windowSeconds() * 1000L / config.bucketCount();
+        rotator = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TrapAnalytics-rotator");
+            t.setDaemon(true);
+            return t;
+        });
+        rotator.scheduleAtFixedRate(this::rotate, bucketMillis, bucketMillis, TimeUnit.MILLISECONDS);
+        logger.info("Trap analytics started: {}s window in {} buckets", config.windowSeconds(), config.bucketCount());
+    }
+
+    public synchronized void stop() {
+        if (rotator != null) {
+            rotator.shutdownNow();
+            rotator = null;
+        }
+    }
+
+    /**
+     * Records a received trap. Safe to call concurrently from the listener's dispatcher threads.
+     */
+    public void record(TrapEvent trapEvent) {
+        Bucket bucket = buckets[current];
+        bucket.total.increment();
+        bucket.dimensions[Dimension.SOURCE.ordinal()].add(sourceKey(trapEvent.getSourceAddress()));
+        bucket.dimensions[Dimension.TRAP_OID.ordinal()].add(trapOidKey(trapEvent));
+        bucket.dimensions[Dimension.COMMUNITY.ordinal()].add(String.valueOf(trapEvent.getCommunity()));
+    }
+
+    /**
+     * Total traps recorded over the current window.
+     */
+    public long total() {
+        long total = 0;
+        for (Bucket bucket : buckets) {
+            total += bucket.total.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the {@code n} most frequent keys of a dimension over the current window.
+     */
+    public List<HeavyHitter> top(Dimension dimension, int n) {
+        Set<String> candidates = new HashSet<>();
+        for (Bucket bucket : buckets) {
+            bucket.dimensions[dimension.ordinal()].collectCandidates(candidates);
+        }
+
+        List<HeavyHitter> result = new ArrayList<>(candidates.size());
+        for (String key : candidates) {
+            long count = 0;
+            for (Bucket bucket : buckets) {
+                count += bucket.dimensions[dimension.ordinal()].estimate(key);
+            }
+            if (count > 0) {
+                result.add(new HeavyHitter(key, count));
+            }
+        }
+        result.sort(Comparator.comparingLong(HeavyHitter::count).reversed().thenComparing(HeavyHitter::key));
+        return result.size() > n ? new ArrayList<>(result.subList(0, n)) : result;
+    }
+
+    public AnalyticsConfig getConfig() {
+        return config;
+    }
+
+    void rotate() {
+        int next = (current + 1) % buckets.length;
+        // Clear before publishing so writers never see stale counts from a full window ago
+        buckets[next].clear();
+        current = next;
+    }
+
+    static String sourceKey(Address address) {
+        if (address instanceof IpAddress ip && ip.getInetAddress() != null) {
+            // Ignore the (usually ephemeral) source port so one agent is one talker
+            return ip.getInetAddress().getHostAddress();
+        }
+        return String.valueOf(address);
+    }
+
+    static String trapOidKey(TrapEvent trapEvent) {
+        PDU pdu = trapEvent.getPdu();
+        if (pdu instanceof PDUv1 v1) {
+            return SnmpConstants.getTrapOID(v1.getEnterprise(), v1.getGenericTrap(), v1.getSpecificTrap()).toDottedString();
+        }
+        for (VariableBinding vb : trapEvent.getVariableBindings()) {
+            if (vb.getOid().equals(SnmpConstants.snmpTrapOID)) {
+                return vb.getVariable().toString();
+            }
+        }
+        return "unknown";
+    }
+
+    private static class Bucket {
+        private final HeavyHitterSketch[] dimensions;
+        private final LongAdder total = new LongAdder();
+
+        Bucket(AnalyticsConfig config, int stripes) {
+            dimensions = new HeavyHitterSketch[Dimension.values().length];
+            for (int i = 0; i < dimensions.length; i++) {
+                dimensions[i] = new HeavyHitterSketch(
+                        config.sketchWidth(), config.sketchDepth(), config.heavyHitterCapacity(), stripes);
+            }
+        }
+
+        void clear() {
+            total.reset();
+            for (HeavyHitterSketch dimension : dimensions) {
+                dimension.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.arnonse.snmp23.config;
+
+/**
+ * Configuration for the streaming trap analytics (top talkers / trap OIDs / communities).
+ */
+public record AnalyticsConfig(
+        boolean enabled,
+        String bindAddress,
+        int port,
+        int windowSeconds,
+        int bucketCount,
+        int sketchWidth,
+        int sketchDepth,
+        int heavyHitterCapacity,
+        int defaultTopN
+) {
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private boolean enabled = false;
+        private String bindAddress = "127.0.0.1";
+        private int port = 8162;
+        private int windowSeconds = 60;
+        private int bucketCount = 6;
+        private int sketchWidth = 2048;
+        private int sketchDepth = 4;
+        private int heavyHitterCapacity = 64;
+        private int defaultTopN = 10;
+
+        public Builder enabled(boolean enabled) {
+            this.enabled = enabled;
+            return this;
+        }
+
+        public Builder bindAddress(String bindAddress) {
+            this.bindAddress = bindAddress;
+            return this;
+        }
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder windowSeconds(int windowSeconds) {
+            this.windowSeconds = windowSeconds;
+            return this;
+        }
+
+        public Builder bucketCount(int bucketCount) {
+            this.bucketCount = bucketCount;
+            return this;
+        }
+
+        public Builder sketchWidth(int sketchWidth) {
+            this.sketchWidth = sketchWidth;
+            return this;
+        }
+
+        public Builder sketchDepth(int sketchDepth) {
+            this.sketchDepth = sketchDepth;
+            return this;
+        }
+
+        public Builder heavyHitterCapacity(int heavyHitterCapacity) {
+            this.heavyHitterCapacity = heavyHitterCapacity;
+            return this;
+        }
+
+        public Builder defaultTopN(int defaultTopN) {
+            this.defaultTopN = defaultTopN;
+            return this;
+        }
+
+        public AnalyticsConfig build() {
+            if (windowSeconds <= 0) {
+                throw new IllegalArgumentException("Analytics window must be positive");
+            }
+            if (bucketCount <= 0 || bucketCount > windowSeconds * 1000) {
+                throw new IllegalArgumentException("Analytics bucket count must be between 1 and the window in millis");
+            }
+            if (sketchWidth <= 0 || sketchDepth <= 0) {
+                throw new IllegalArgumentException("Sketch width and depth must be positive");
+            }
+            if (heavyHitterCapacity <= 0) {
+                throw new IllegalArgumentException("Heavy hitter capacity must be positive");
+            }
+            if (defaultTopN <= 0) {
+                throw new IllegalArgumentException("Analytics default top-N must be positive");
+            }
+            return new AnalyticsConfig(
+                    enabled,
+                    bindAddress,
+                    port,
+                    windowSeconds,
+                    bucketCount,
+                    sketchWidth,
+                    sketchDepth,
+                    heavyHitterCapacity,
+                    defaultTopN
+            );
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.arnonse.snmp23.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Builds the configuration records from {@code application.properties}.
+ * <p>
+ * Without a {@code tenants} property a single tenant named {@code default} is built from the
+ * top-level {@code listener.*} and {@code v3.*} keys. With {@code tenants=a,b} each tenant reads
+ * {@code tenant.<name>.listener.*}, {@code tenant.<name>.v3.*}, {@code tenant.<name>.queueCapacity}
+ * and {@code tenant.<name>.maxTrapsPerSecond}, falling back to the top-level key when unset.
+ */
+public final class ConfigLoader {
+
+    private ConfigLoader() {
+    }
+
+    public static List<TenantConfig> tenants(Properties props) {
+        String names = props.getProperty("tenants", "").trim();
+        List<TenantConfig> tenants = new ArrayList<>();
+        if (names.isEmpty()) {
+            tenants.add(tenant(props, "default", ""));
+        } else {
+            for (String name : names.split(",")) {
+                name = name.trim();
+                if (!name.isEmpty()) {
+                    tenants.add(tenant(props, name, "tenant." + name + "."));
+                }
+            }
+        }
+
+        for (int i = 0; i < tenants.size(); i++) {
+            ListenerConfig listener = tenants.get(i).listener();
+            for (TenantConfig earlier : tenants.subList(0, i)) {
+                if (earlier.listener().conflictsWith(listener)) {
+                    throw new IllegalArgumentException("Tenants " + earlier.name() + " and " + tenants.get(i).name()
+                            + " both listen on port " + listener.listenPort() + " of " + listener.bindAddress());
+                }
+            }
+        }
+        return tenants;
+    }
+
+    public static AnalyticsConfig analytics(Properties props) {
+        return AnalyticsConfig.builder()
+                .enabled(Boolean.parseBoolean(props.getProperty("analytics.enabled", "false")))
+                .bindAddress(props.getProperty("analytics.bindAddress", "127.0.0.1"))
+                .port(Integer.parseInt(props.getProperty("analytics.port", "8162")))
+                .windowSeconds(Integer.parseInt(props.getProperty("analytics.windowSeconds", "60")))
+                .bucketCount(Integer.parseInt(props.getProperty("analytics.buckets", "6")))
+                .defaultTopN(Integer.parseInt(props.getProperty("analytics.topN", "10")))
+                .build();
+    }
+
+    public static WorkerConfig workers(Properties props) {
+        return WorkerConfig.builder()
+                .decodeThreads(Integer.parseInt(props.getProperty("workers.decode", "4")))
+                .sendThreads(Integer.parseInt(props.getProperty("workers.send", "4")))
+                .build();
+    }
+
+    public static SenderTransportConfig senderTransport(Properties props) {
+        return SenderTransportConfig.builder()
+                .sockets(Integer.parseInt(props.getProperty("sender.sockets", "0")))
+                .sendBufferBytes(Integer.parseInt(props.getProperty("sender.sendBufferBytes", "0")))
+                .batchSize(Integer.parseInt(props.getProperty("sender.batchSize", "1")))
+                .flushMicros(Long.parseLong(props.getProperty("sender.flushMicros", "200")))
+                .build();
+    }
+
+    public static ShutdownConfig shutdown(Properties props) {
+        return ShutdownConfig.builder()
+                .drainTimeoutMillis(Long.parseLong(props.getProperty("shutdown.drainTimeoutMillis", "10000")))
+                .quietPeriodMillis(Long.parseLong(props.getProperty("shutdown.quietPeriodMillis", "200")))
+                .maxReadMillis(Long.parseLong(props.getProperty("shutdown.maxReadMillis", "1000")))
+                .spillFile(props.getProperty("shutdown.spillFile", "trap-spill.jsonl"))
+                .build();
+    }
+
+    private static TenantConfig tenant(Properties props, String name, String prefix) {
+        ListenerConfig listenerConfig = ListenerConfig.builder()
+                .bindAddress(get(props, prefix, "listener.bindAddress", "0.0.0.0"))
+                .listenPort(Integer.parseInt(get(props, prefix, "listener.port", "1162")))
+                .tcp(Boolean.parseBoolean(get(props, prefix, "listener.tcp", "false")))
+                .tcpIdleTimeoutMillis(Long.parseLong(get(props, prefix, "listener.tcpIdleTimeoutMillis", "300000")))
+                .build();
+
+        SnmpV3Config senderConfig = SnmpV3Config.builder()
+                .targetHost(get(props, prefix, "v3.targetHost", null))
+                .targetPort(Integer.parseInt(get(props, prefix, "v3.targetPort", "162")))
+                .username(get(props, prefix, "v3.username", null))
+                .authPassword(get(props, prefix, "v3.authPassword", null))
+                .privPassword(get(props, prefix, "v3.privPassword", null))
+                .engineId(get(props, prefix, "v3.engineId", null))
+                .authProtocol(SnmpV3Config.AuthProtocol.valueOf(get(props, prefix, "v3.authProtocol", "SHA")))
+                .privProtocol(SnmpV3Config.PrivProtocol.valueOf(get(props, prefix, "v3.privProtocol", "AES")))
+                .transport(SnmpV3Config.Transport.valueOf(get(props, prefix, "v3.transport", "UDP")))
+                .build();
+
+        return TenantConfig.builder()
+                .name(name)
+                .listener(listenerConfig)
+                .v3(senderConfig)
+                .queueCapacity(Integer.parseInt(get(props, prefix, "queueCapacity", "10000")))
+                .maxTrapsPerSecond(Integer.parseInt(get(props, prefix, "maxTrapsPerSecond", "0")))
+                .build();
+    }
+
+    /**
+     * Two listeners conflict on the same port if they bind the same address or either binds the wildcard.
+     */
+    private static String get(Properties props, String prefix, String key, String defaultValue) {
+        String value = props.getProperty(prefix + key);
+        return value != null ? value : props.getProperty(key, defaultValue);
+    }
+}
@@ -5,8 +5,24 @@ package com.arnonse.snmp23.config;
  */
 public record ListenerConfig(
         String bindAddress,
-        int listenPort
+        int listenPort,
+        boolean tcp,
+        long tcpIdleTimeoutMillis
 ) {
+    /**
+     * Whether both listeners would bind the same port, counting a wildcard address as every address.
+     */
+    public boolean conflictsWith(ListenerConfig other) {
+        if (listenPort != other.listenPort) {
+            return false;
+        }
+        return bindAddress.equals(other.bindAddress) || isWildcard(bindAddress) || isWildcard(other.bindAddress);
+    }
+
+    private static boolean isWildcard(String bindAddress) {
+        return bindAddress.equals("0.0.0.0") || bindAddress.equals("::") || bindAddress.equals("[::]");
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -14,6 +30,8 @@ public record ListenerConfig(
     public static class Builder {
         private String bindAddress = "0.0.0.0";
         private int listenPort = 9162;
+        private boolean tcp = false;
+        private long tcpIdleTimeoutMillis = 300_000;
 
         public Builder bindAddress(String bindAddress) {
             this.bindAddress = bindAddress;
@@ -25,8 +43,27 @@ public record ListenerConfig(
             return this;
         }
 
+        /**
+         * Also accept SNMP over TCP (RFC 3430) on the same port.
+         */
+        public Builder tcp(boolean tcp) {
+            this.tcp = tcp;
+            return this;
+        }
+
+        /**
+         * Closes agent connections idle for this long; 0 keeps them open.
+         */
+        public Builder tcpIdleTimeoutMillis(long tcpIdleTimeoutMillis) {
+            this.tcpIdleTimeoutMillis = tcpIdleTimeoutMillis;
+            return this;
+        }
+
         public ListenerConfig build() {
-            return new ListenerConfig(bindAddress, listenPort);
+            if (tcpIdleTimeoutMillis < 0) {
+                throw new IllegalArgumentException("TCP idle timeout must not be negative");
+            }
+            return new ListenerConfig(bindAddress, listenPort, tcp, tcpIdleTimeoutMillis);
         }
     }
 }
@@ -0,0 +1,64 @@
+package com.arnonse.snmp23.config;
+
+/**
+ * Configuration for the UDP sockets the SNMPv3 senders send through.
+ */
+public record SenderTransportConfig(
+        int sockets,
+        int sendBufferBytes,
+        int batchSize,
+        long flushMicros
+) {
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int sockets = 0;
+        private int sendBufferBytes = 0;
+        private int batchSize = 1;
+        private long flushMicros = 200;
+
+        /**
+         * Number of UDP sockets; 0 opens one per send worker.
+         */
+        public Builder sockets(int sockets) {
+            this.sockets = sockets;
+            return this;
+        }
+
+        /**
+         * SO_SNDBUF of each socket in bytes; 0 keeps the operating system default.
+         */
+        public Builder sendBufferBytes(int sendBufferBytes) {
+            this.sendBufferBytes = sendBufferBytes;
+            return this;
+        }
+
+        /**
+         * Packets queued on a socket before the sending thread writes them; 1 sends every packet at once.
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Longest time a packet waits for its batch to fill before it is written.
+         */
+        public Builder flushMicros(long flushMicros) {
+            this.flushMicros = flushMicros;
+            return this;
+        }
+
+        public SenderTransportConfig build() {
+            if (sockets < 0 || sendBufferBytes < 0) {
+                throw new IllegalArgumentException("Sender socket count and send buffer must not be negative");
+            }
+            if (batchSize <= 0 || flushMicros <= 0) {
+                throw new IllegalArgumentException("Sender batch size and flush interval must be positive");
+            }
+            return new SenderTransportConfig(sockets, sendBufferBytes, batchSize, flushMicros);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.arnonse.snmp23.config;
+
+/**
+ * Configuration for the draining shutdown.
+ */
+public record ShutdownConfig(
+        long drainTimeoutMillis,
+        long quietPeriodMillis,
+        long maxReadMillis,
+        String spillFile
+) {
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private long drainTimeoutMillis = 10_000;
+        private long quietPeriodMillis = 200;
+        private long maxReadMillis = 1000;
+        private String spillFile = "trap-spill.jsonl";
+
+        /**
+         * Upper bound for the whole drain; whatever is not sent by then is spilled to disk.
+         */
+        public Builder drainTimeoutMillis(long drainTimeoutMillis) {
+            this.drainTimeoutMillis = drainTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * How long a listener must receive nothing before its socket is closed.
+         */
+        public Builder quietPeriodMillis(long quietPeriodMillis) {
+            this.quietPeriodMillis = quietPeriodMillis;
+            return this;
+        }
+
+        /**
+         * Longest time listeners keep reading at shutdown; the rest of the drain timeout is left
+         * for sending what was queued, even if traffic never goes quiet.
+         */
+        public Builder maxReadMillis(long maxReadMillis) {
+            this.maxReadMillis = maxReadMillis;
+            return this;
+        }
+
+        public Builder spillFile(String spillFile) {
+            this.spillFile = spillFile;
+            return this;
+        }
+
+        public ShutdownConfig build() {
+            if (drainTimeoutMillis < 0 || quietPeriodMillis < 0 || maxReadMillis < 0) {
+                throw new IllegalArgumentException("Shutdown timeouts must not be negative");
+            }
+            if (spillFile == null || spillFile.isEmpty()) {
+                throw new IllegalArgumentException("Spill file is required");
+            }
+            return new ShutdownConfig(drainTimeoutMillis, quietPeriodMillis, maxReadMillis, spillFile);
+        }
+    }
+}
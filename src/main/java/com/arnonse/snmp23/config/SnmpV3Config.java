@@ -11,7 +11,8 @@ public record SnmpV3Config(
         String privPassword,
         String engineId,
         AuthProtocol authProtocol,
-        PrivProtocol privProtocol
+        PrivProtocol privProtocol,
+        Transport transport
 ) {
     public enum AuthProtocol {
         MD5, SHA, SHA224, SHA256, SHA384, SHA512
@@ -21,6 +22,10 @@ public record SnmpV3Config(
         DES, AES, AES128, AES192, AES256
     }
 
+    public enum Transport {
+        UDP, TCP
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -34,6 +39,7 @@ public record SnmpV3Config(
         private String engineId;
         private AuthProtocol authProtocol = AuthProtocol.SHA;
         private PrivProtocol privProtocol = PrivProtocol.AES;
+        private Transport transport = Transport.UDP;
 
         public Builder targetHost(String targetHost) {
             this.targetHost = targetHost;
@@ -75,6 +81,14 @@ public record SnmpV3Config(
             return this;
         }
 
+        /**
+         * Transport to the target; TCP (RFC 3430) keeps one persistent connection per target.
+         */
+        public Builder transport(Transport transport) {
+            this.transport = transport;
+            return this;
+        }
+
         public SnmpV3Config build() {
             if (targetHost == null || targetHost.isEmpty()) {
                 throw new IllegalArgumentException("Target host is required");
@@ -99,7 +113,8 @@ public record SnmpV3Config(
                     privPassword,
                     engineId,
                     authProtocol,
-                    privProtocol
+                    privProtocol,
+                    transport
             );
         }
     }
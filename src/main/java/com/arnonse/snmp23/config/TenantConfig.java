@@ -0,0 +1,72 @@
+package com.arnonse.snmp23.config;
+
+/**
+ * Configuration for one tenant: the port it ingests on, the SNMPv3 profile its traps
+ * are forwarded with, and its private queue and rate limit.
+ */
+public record TenantConfig(
+        String name,
+        ListenerConfig listener,
+        SnmpV3Config v3,
+        int queueCapacity,
+        int maxTrapsPerSecond
+) {
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private String name = "default";
+        private ListenerConfig listener;
+        private SnmpV3Config v3;
+        private int queueCapacity = 10000;
+        private int maxTrapsPerSecond = 0;
+
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder listener(ListenerConfig listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public Builder v3(SnmpV3Config v3) {
+            this.v3 = v3;
+            return this;
+        }
+
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Maximum traps accepted per second; 0 means unlimited.
+         */
+        public Builder maxTrapsPerSecond(int maxTrapsPerSecond) {
+            this.maxTrapsPerSecond = maxTrapsPerSecond;
+            return this;
+        }
+
+        public TenantConfig build() {
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("Tenant name is required");
+            }
+            if (listener == null) {
+                throw new IllegalArgumentException("Listener config is required for tenant " + name);
+            }
+            if (v3 == null) {
+                throw new IllegalArgumentException("SNMPv3 config is required for tenant " + name);
+            }
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("Queue capacity must be positive for tenant " + name);
+            }
+            if (maxTrapsPerSecond < 0) {
+                throw new IllegalArgumentException("Rate limit must not be negative for tenant " + name);
+            }
+            return new TenantConfig(name, listener, v3, queueCapacity, maxTrapsPerSecond);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.arnonse.snmp23.config;
+
+/**
+ * Sizes of the worker pools shared by all tenants.
+ */
+public record WorkerConfig(
+        int decodeThreads,
+        int sendThreads
+) {
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int decodeThreads = 4;
+        private int sendThreads = 4;
+
+        public Builder decodeThreads(int decodeThreads) {
+            this.decodeThreads = decodeThreads;
+            return this;
+        }
+
+        public Builder sendThreads(int sendThreads) {
+            this.sendThreads = sendThreads;
+            return this;
+        }
+
+        public WorkerConfig build() {
+            if (decodeThreads <= 0 || sendThreads <= 0) {
+                throw new IllegalArgumentException("Worker thread counts must be positive");
+            }
+            return new WorkerConfig(decodeThreads, sendThreads);
+        }
+    }
+}
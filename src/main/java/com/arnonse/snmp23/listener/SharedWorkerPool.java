@@ -0,0 +1,42 @@
+package com.arnonse.snmp23.listener;
+
+import org.snmp4j.util.WorkerPool;
+import org.snmp4j.util.WorkerTask;
+
+/**
+ * View of a {@link WorkerPool} that is shared by several listeners.
+ * {@link org.snmp4j.Snmp#close()} stops its dispatcher's pool, so stopping through this view
+ * is a no-op; the owner of the underlying pool stops it once every listener is closed.
+ */
+public class SharedWorkerPool implements WorkerPool {
+    private final WorkerPool delegate;
+
+    public SharedWorkerPool(WorkerPool delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(WorkerTask task) {
+        delegate.execute(task);
+    }
+
+    @Override
+    public boolean tryToExecute(WorkerTask task) {
+        return delegate.tryToExecute(task);
+    }
+
+    @Override
+    public void stop() {
+        // Owned elsewhere
+    }
+
+    @Override
+    public void cancel() {
+        // Owned elsewhere
+    }
+
+    @Override
+    public boolean isIdle() {
+        return delegate.isIdle();
+    }
+}
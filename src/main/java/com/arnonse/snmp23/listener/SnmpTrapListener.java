@@ -15,25 +15,39 @@ import org.snmp4j.transport.DefaultTcpTransportMapping;
 import org.snmp4j.transport.DefaultUdpTransportMapping;
 import org.snmp4j.util.MultiThreadedMessageDispatcher;
 import org.snmp4j.util.ThreadPool;
+import org.snmp4j.util.WorkerPool;
 
 import java.io.IOException;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
 /**
- * Listens for incoming SNMP v1 and v2c trap messages.
+ * Listens for incoming SNMP v1 and v2c trap messages over UDP and, optionally, over TCP (RFC 3430).
+ * TCP connections are served by one selector thread, so many persistent agent connections are cheap.
  */
 public class SnmpTrapListener implements CommandResponder {
     private static final Logger logger = LoggerFactory.getLogger(SnmpTrapListener.class);
 
-    private final ListenerConfig config;
+    private volatile ListenerConfig config;
+    private final WorkerPool sharedWorkers;
     private final CopyOnWriteArrayList<Consumer<TrapEvent>> trapHandlers;
     private Snmp snmp;
     private TransportMapping<?> transportMapping;
+    private DefaultTcpTransportMapping tcpTransportMapping;
     private boolean running = false;
+    private volatile long lastTrapNanos = System.nanoTime();
 
     public SnmpTrapListener(ListenerConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * Creates a listener that decodes on a worker pool shared with other listeners.
+     * The shared pool is not stopped by {@link #stop()}.
+     */
+    public SnmpTrapListener(ListenerConfig config, WorkerPool sharedWorkers) {
         this.config = config;
+        this.sharedWorkers = sharedWorkers;
         this.trapHandlers = new CopyOnWriteArrayList<>();
     }
 
@@ -48,7 +62,7 @@ public class SnmpTrapListener implements CommandResponder {
     /**
      * Starts listening for SNMP traps.
      */
-    public void start() throws IOException {
+    public synchronized void start() throws IOException {
         if (running) {
             logger.warn("Listener is already running");
             return;
@@ -60,8 +74,10 @@ public class SnmpTrapListener implements CommandResponder {
         Address listenAddress = GenericAddress.parse("udp:" + config.bindAddress() + "/" + config.listenPort());
         transportMapping = new DefaultUdpTransportMapping((UdpAddress) listenAddress);
 
-        // Create thread pool for message dispatcher
-        ThreadPool threadPool = ThreadPool.create("SnmpTrapListener", 4);
+        // Create thread pool for message dispatcher, unless one is shared across listeners
+        WorkerPool threadPool = (sharedWorkers != null)
+                ? new SharedWorkerPool(sharedWorkers)
+                : ThreadPool.create("SnmpTrapListener", 4);
         MultiThreadedMessageDispatcher dispatcher = new MultiThreadedMessageDispatcher(threadPool, new MessageDispatcherImpl());
 
         // Add support for SNMPv1 and SNMPv2c
@@ -73,16 +89,70 @@ public class SnmpTrapListener implements CommandResponder {
         snmp.addCommandResponder(this);
 
         // Start listening
-        transportMapping.listen();
+        try {
+            transportMapping.listen();
+            if (config.tcp()) {
+                startTcp(config);
+            }
+        } catch (IOException | RuntimeException e) {
+            snmp.close();
+            throw e;
+        }
         running = true;
 
         logger.info("SNMP trap listener started successfully");
     }
 
+    /**
+     * Applies changed TCP settings of {@code newConfig}, which must have this listener's bind
+     * address and port. The UDP socket stays bound, so no UDP trap is lost. A new idle timeout
+     * is applied to the running TCP socket, keeping the agent connections. The TCP socket is only
+     * opened or closed when {@code tcp} itself changes; if it cannot be opened, the listener keeps
+     * its previous config, so the caller sees the difference and can retry.
+     */
+    public synchronized void reconfigureTcp(ListenerConfig newConfig) throws IOException {
+        if (!newConfig.bindAddress().equals(config.bindAddress()) || newConfig.listenPort() != config.listenPort()) {
+            throw new IllegalArgumentException("Bind address and port of a running listener cannot change");
+        }
+        if (tcpTransportMapping != null && newConfig.tcp()) {
+            tcpTransportMapping.setConnectionTimeout(newConfig.tcpIdleTimeoutMillis());
+            logger.info("Closing agent TCP connections on {}:{} after {} ms idle",
+                    config.bindAddress(), config.listenPort(), newConfig.tcpIdleTimeoutMillis());
+            config = newConfig;
+            return;
+        }
+        if (tcpTransportMapping != null) {
+            snmp.removeTransportMapping(tcpTransportMapping);
+            tcpTransportMapping.close();
+            tcpTransportMapping = null;
+            logger.info("Stopped accepting SNMP over TCP on {}:{}", config.bindAddress(), config.listenPort());
+        }
+        if (newConfig.tcp()) {
+            startTcp(newConfig);
+        }
+        config = newConfig;
+    }
+
+    private void startTcp(ListenerConfig tcpConfig) throws IOException {
+        TcpAddress tcpAddress = (TcpAddress) GenericAddress.parse(
+                "tcp:" + tcpConfig.bindAddress() + "/" + tcpConfig.listenPort());
+        DefaultTcpTransportMapping tcp = new DefaultTcpTransportMapping(tcpAddress, true);
+        tcp.setConnectionTimeout(tcpConfig.tcpIdleTimeoutMillis());
+        snmp.addTransportMapping(tcp);
+        try {
+            tcp.listen();
+        } catch (IOException e) {
+            snmp.removeTransportMapping(tcp);
+            throw e;
+        }
+        tcpTransportMapping = tcp;
+        logger.info("Accepting SNMP over TCP on {}:{}", tcpConfig.bindAddress(), tcpConfig.listenPort());
+    }
+
     /**
      * Stops the listener.
      */
-    public void stop() throws IOException {
+    public synchronized void stop() throws IOException {
         if (!running) {
             logger.warn("Listener is not running");
             return;
@@ -96,16 +166,38 @@ public class SnmpTrapListener implements CommandResponder {
         if (transportMapping != null) {
             transportMapping.close();
         }
+        if (tcpTransportMapping != null) {
+            tcpTransportMapping.close();
+            tcpTransportMapping = null;
+        }
 
         running = false;
         logger.info("SNMP trap listener stopped");
     }
 
+    /**
+     * Waits until no trap has been received for {@code quietMillis}, so that the socket's
+     * receive buffer is empty before {@link #stop()} closes it.
+     *
+     * @return false if traps were still arriving at {@code deadlineMillis}
+     */
+    public boolean awaitQuiet(long quietMillis, long deadlineMillis) throws InterruptedException {
+        long quietNanos = quietMillis * 1_000_000;
+        while (System.nanoTime() - lastTrapNanos < quietNanos) {
+            if (System.currentTimeMillis() >= deadlineMillis) {
+                return false;
+            }
+            Thread.sleep(Math.max(1, quietMillis / 10));
+        }
+        return true;
+    }
+
     /**
      * Called when a trap/inform is received.
      */
     @Override
     public void processPdu(CommandResponderEvent event) {
+        lastTrapNanos = System.nanoTime();
         try {
             PDU pdu = event.getPDU();
             if (pdu == null) {
@@ -20,8 +20,12 @@ public class TrapEvent {
     private final List<VariableBinding> variableBindings;
 
     public TrapEvent(Address sourceAddress, int snmpVersion, String community, PDU pdu) {
+        this(sourceAddress, snmpVersion, community, pdu, Instant.now());
+    }
+
+    public TrapEvent(Address sourceAddress, int snmpVersion, String community, PDU pdu, Instant receivedAt) {
         this.sourceAddress = sourceAddress;
-        this.receivedAt = Instant.now();
+        this.receivedAt = receivedAt;
         this.snmpVersion = snmpVersion;
         this.community = community;
         this.pdu = pdu;
@@ -0,0 +1,249 @@
+package com.arnonse.snmp23.sender;
+
+import com.arnonse.snmp23.config.SenderTransportConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snmp4j.TransportStateReference;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.transport.AbstractTransportMapping;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Send-only UDP transport for the SNMPv3 senders.
+ * <p>
+ * Each sending thread is pinned to one socket of a pool, so send workers do not contend on a
+ * single socket. Packets are queued per socket and written in batches: by the sending thread once
+ * {@code batchSize} packets are pending, otherwise by a flusher thread at most {@code flushMicros}
+ * after the first packet of the batch was queued. A full socket send buffer blocks the writer,
+ * which pushes back on the send workers.
+ * <p>
+ * Nothing is received: notifications are unconfirmed and the forwarder is the authoritative engine.
+ */
+public class BatchingUdpTransportMapping extends AbstractTransportMapping<UdpAddress> {
+    private static final Logger logger = LoggerFactory.getLogger(BatchingUdpTransportMapping.class);
+
+    private final int socketCount;
+    private final int sendBufferBytes;
+    private final int batchSize;
+    private final long flushNanos;
+    private final AtomicInteger nextSocket = new AtomicInteger();
+    private final ThreadLocal<Integer> socketOfThread =
+            ThreadLocal.withInitial(() -> nextSocket.getAndIncrement());
+    private volatile Socket[] sockets;
+    private volatile boolean closed;
+    private volatile Thread flusher;
+
+    private record Packet(ByteBuffer data, InetSocketAddress target) {
+    }
+
+    public BatchingUdpTransportMapping(SenderTransportConfig config, int defaultSockets) {
+        this.socketCount = (config.sockets() > 0) ? config.sockets() : defaultSockets;
+        this.sendBufferBytes = config.sendBufferBytes();
+        this.batchSize = config.batchSize();
+        this.flushNanos = TimeUnit.MICROSECONDS.toNanos(config.flushMicros());
+        if (socketCount <= 0) {
+            throw new IllegalArgumentException("Sender socket count must be positive");
+        }
+    }
+
+    @Override
+    public synchronized void listen() throws IOException {
+        if (sockets != null) {
+            return;
+        }
+        Socket[] opened = new Socket[socketCount];
+        try {
+            for (int i = 0; i < opened.length; i++) {
+                opened[i] = new Socket(openChannel());
+            }
+        } catch (IOException e) {
+            for (Socket socket : opened) {
+                if (socket != null) {
+                    socket.channel.close();
+                }
+            }
+            throw e;
+        }
+        closed = false;
+        sockets = opened;
+
+        if (batchSize > 1) {
+            flusher = new Thread(() -> runFlusher(opened), "SnmpTrapSender.flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+        logger.info("Sending through {} UDP socket(s) with SO_SNDBUF {} bytes, batch size {}",
+                opened.length, opened[0].channel.getOption(StandardSocketOptions.SO_SNDBUF), batchSize);
+    }
+
+    @Override
+    public void sendMessage(UdpAddress address, byte[] message, TransportStateReference tmStateReference,
+                            long timeoutMillis, int maxRetries) throws IOException {
+        Socket[] current = sockets;
+        if (current == null) {
+            throw new SocketException("Sender transport is not listening");
+        }
+        Socket socket = current[Math.floorMod(socketOfThread.get(), current.length)];
+        Packet packet = new Packet(ByteBuffer.wrap(message),
+                new InetSocketAddress(address.getInetAddress(), address.getPort()));
+
+        if (batchSize <= 1) {
+            socket.channel.send(packet.data(), packet.target());
+            return;
+        }
+        int pending = socket.add(packet);
+        if (pending >= batchSize) {
+            socket.flush();
+        } else if (pending == 1) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    private void runFlusher(Socket[] flushed) {
+        while (!closed) {
+            if (!hasPending(flushed)) {
+                LockSupport.park(this);
+                continue;
+            }
+            // Give the batch a moment to fill before writing it
+            LockSupport.parkNanos(this, flushNanos);
+            flushAll(flushed);
+        }
+    }
+
+    private static boolean hasPending(Socket[] flushed) {
+        for (Socket socket : flushed) {
+            if (socket.hasPending()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void flushAll(Socket[] flushed) {
+        for (Socket socket : flushed) {
+            socket.flush();
+        }
+    }
+
+    private DatagramChannel openChannel() throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        if (sendBufferBytes > 0) {
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, sendBufferBytes);
+        }
+        channel.bind(null);
+        return channel;
+    }
+
+    /**
+     * Writes what is still queued and closes the sockets.
+     */
+    @Override
+    public void close() throws IOException {
+        Socket[] current;
+        Thread currentFlusher;
+        synchronized (this) {
+            current = sockets;
+            if (current == null) {
+                return;
+            }
+            closed = true;
+            currentFlusher = flusher;
+            flusher = null;
+        }
+        if (currentFlusher != null) {
+            LockSupport.unpark(currentFlusher);
+            try {
+                currentFlusher.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sockets = null;
+        flushAll(current);
+        for (Socket socket : current) {
+            socket.channel.close();
+        }
+    }
+
+    @Override
+    public Class<? extends Address> getSupportedAddressClass() {
+        return UdpAddress.class;
+    }
+
+    @Override
+    public UdpAddress getListenAddress() {
+        Socket[] current = sockets;
+        if (current == null) {
+            return null;
+        }
+        try {
+            InetSocketAddress local = (InetSocketAddress) current[0].channel.getLocalAddress();
+            return new UdpAddress(local.getAddress(), local.getPort());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isListening() {
+        return sockets != null;
+    }
+
+    private final class Socket {
+        private final DatagramChannel channel;
+        // Keeps the packets of one socket in order when a sender and the flusher flush together
+        private final ReentrantLock flushLock = new ReentrantLock();
+        private List<Packet> pending = new ArrayList<>();
+
+        Socket(DatagramChannel channel) {
+            this.channel = channel;
+        }
+
+        synchronized int add(Packet packet) {
+            pending.add(packet);
+            return pending.size();
+        }
+
+        synchronized boolean hasPending() {
+            return !pending.isEmpty();
+        }
+
+        private synchronized List<Packet> takePending() {
+            if (pending.isEmpty()) {
+                return List.of();
+            }
+            List<Packet> batch = pending;
+            pending = new ArrayList<>(batchSize);
+            return batch;
+        }
+
+        void flush() {
+            flushLock.lock();
+            try {
+                for (Packet packet : takePending()) {
+                    try {
+                        channel.send(packet.data(), packet.target());
+                    } catch (IOException e) {
+                        logger.error("Failed to send trap to {}", packet.target(), e);
+                    }
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.arnonse.snmp23.sender;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snmp4j.TransportStateReference;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.TcpAddress;
+import org.snmp4j.transport.AbstractTransportMapping;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Send-only SNMP-over-TCP transport (RFC 3430) for the SNMPv3 senders.
+ * <p>
+ * Keeps one persistent connection per target. Writes are coalesced: while one thread writes to a
+ * connection, other threads queue their messages, and the writer sends everything queued in one
+ * gathering write. SNMP messages are self-delimiting BER sequences, so they are written back to
+ * back without framing.
+ * <p>
+ * When the target closes the connection or a write fails, a background thread reconnects while
+ * senders keep queueing; messages the failed write did not complete are sent again on the new
+ * connection. Messages already handed to a connection the target then resets are lost, as
+ * notifications are not acknowledged.
+ */
+public class CoalescingTcpTransportMapping extends AbstractTransportMapping<TcpAddress> {
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingTcpTransportMapping.class);
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+    // Beyond this many queued messages a sender waits for the write in progress, or while
+    // reconnecting, further messages are dropped
+    private static final int MAX_PENDING = 1024;
+
+    private final Map<InetSocketAddress, Connection> connections = new ConcurrentHashMap<>();
+    private volatile boolean listening;
+
+    @Override
+    public void listen() {
+        listening = true;
+    }
+
+    @Override
+    public void sendMessage(TcpAddress address, byte[] message, TransportStateReference tmStateReference,
+                            long timeoutMillis, int maxRetries) throws IOException {
+        if (!listening) {
+            throw new SocketException("Sender transport is not listening");
+        }
+        InetSocketAddress target = new InetSocketAddress(address.getInetAddress(), address.getPort());
+        connections.computeIfAbsent(target, Connection::new).send(ByteBuffer.wrap(message));
+    }
+
+    /**
+     * Writes what is still queued and closes all connections.
+     */
+    @Override
+    public void close() {
+        listening = false;
+        for (Connection connection : connections.values()) {
+            connection.close();
+        }
+        connections.clear();
+    }
+
+    @Override
+    public Class<? extends Address> getSupportedAddressClass() {
+        return TcpAddress.class;
+    }
+
+    @Override
+    public TcpAddress getListenAddress() {
+        return null;
+    }
+
+    @Override
+    public boolean isListening() {
+        return listening;
+    }
+
+    private static final class Connection {
+        private final InetSocketAddress target;
+        private final ReentrantLock writeLock = new ReentrantLock();
+        // Guarded by this
+        private List<ByteBuffer> pending = new ArrayList<>();
+        private boolean connecting;
+        private int dropped;
+        // Set under this; cleared under writeLock and this
+        private volatile SocketChannel channel;
+        private volatile boolean closed;
+
+        Connection(InetSocketAddress target) {
+            this.target = target;
+        }
+
+        void send(ByteBuffer message) {
+            int queued;
+            synchronized (this) {
+                if (channel == null) {
+                    // The connector sends it once connected; senders never wait for a connect
+                    queueWhileDisconnected(message);
+                    return;
+                }
+                pending.add(message);
+                queued = pending.size();
+            }
+            writeQueued(queued >= MAX_PENDING);
+        }
+
+        private void queueWhileDisconnected(ByteBuffer message) {
+            if (pending.size() >= MAX_PENDING) {
+                if (dropped++ == 0) {
+                    logger.error("Queue to {} is full while reconnecting, dropping messages", target);
+                }
+            } else {
+                pending.add(message);
+            }
+            startConnector();
+        }
+
+        /**
+         * Writes the queued messages unless another thread is writing, in which case that thread
+         * sends them with its next write. With {@code wait} the caller waits for that write instead.
+         */
+        private void writeQueued(boolean wait) {
+            if (wait) {
+                writeLock.lock();
+            } else if (!writeLock.tryLock()) {
+                return;
+            }
+            do {
+                try {
+                    writePending();
+                } finally {
+                    writeLock.unlock();
+                }
+                // A message queued just before the unlock would otherwise wait for the next send
+            } while (hasWritable() && writeLock.tryLock());
+        }
+
+        private synchronized boolean hasWritable() {
+            return channel != null && !pending.isEmpty();
+        }
+
+        private synchronized List<ByteBuffer> takePending() {
+            if (channel == null || pending.isEmpty()) {
+                return List.of();
+            }
+            List<ByteBuffer> batch = pending;
+            pending = new ArrayList<>();
+            return batch;
+        }
+
+        private void writePending() {
+            for (List<ByteBuffer> batch = takePending(); !batch.isEmpty(); batch = takePending()) {
+                write(batch.toArray(ByteBuffer[]::new));
+            }
+        }
+
+        private void write(ByteBuffer[] messages) {
+            SocketChannel connected = channel;
+            try {
+                while (messages[messages.length - 1].hasRemaining()) {
+                    connected.write(messages);
+                }
+            } catch (IOException e) {
+                logger.warn("Connection to {} failed, reconnecting: {}", target, e.toString());
+                closeQuietly(connected);
+                requeueUnsent(messages);
+            }
+        }
+
+        /**
+         * Queues the messages the failed write did not complete in front of the newer ones and
+         * hands them to the connector. Messages written in full are not sent again.
+         */
+        private synchronized void requeueUnsent(ByteBuffer[] messages) {
+            List<ByteBuffer> unsent = new ArrayList<>();
+            for (ByteBuffer message : messages) {
+                if (message.hasRemaining()) {
+                    // The target discards a partly received message with the connection
+                    message.rewind();
+                    unsent.add(message);
+                }
+            }
+            pending.addAll(0, unsent);
+            channel = null;
+            startConnector();
+        }
+
+        private void startConnector() {
+            if (!connecting && !closed) {
+                connecting = true;
+                // A platform thread: a virtual one can starve behind send workers busy encrypting,
+                // while the queue fills up and overflows
+                Thread.ofPlatform().daemon().name("SnmpTrapSender.tcp.connect." + target).start(this::connect);
+            }
+        }
+
+        /**
+         * Connects in the background, retrying an unreachable target every
+         * {@code RECONNECT_DELAY_MILLIS}, then writes what was queued meanwhile.
+         */
+        private void connect() {
+            for (int attempt = 1; !closed; attempt++) {
+                SocketChannel opened;
+                try {
+                    opened = open();
+                } catch (IOException e) {
+                    if (attempt == 1) {
+                        logger.warn("Failed to connect to {}, retrying every {} ms: {}",
+                                target, RECONNECT_DELAY_MILLIS, e.toString());
+                    } else {
+                        logger.debug("Failed to connect to {}: {}", target, e.toString());
+                    }
+                    try {
+                        Thread.sleep(RECONNECT_DELAY_MILLIS);
+                    } catch (InterruptedException interrupted) {
+                        break;
+                    }
+                    continue;
+                }
+
+                int droppedMeanwhile;
+                synchronized (this) {
+                    connecting = false;
+                    if (closed) {
+                        closeQuietly(opened);
+                        return;
+                    }
+                    channel = opened;
+                    droppedMeanwhile = dropped;
+                    dropped = 0;
+                }
+                logger.info("Connected to {} over TCP", target);
+                if (droppedMeanwhile > 0) {
+                    logger.error("Dropped {} message(s) to {} while reconnecting", droppedMeanwhile, target);
+                }
+                // Notifications get no response; reading only notices when the target closes the connection
+                Thread.ofVirtual().name("SnmpTrapSender.tcp." + target).start(() -> watchForClose(opened));
+                writeQueued(true);
+                return;
+            }
+            synchronized (this) {
+                connecting = false;
+            }
+        }
+
+        private SocketChannel open() throws IOException {
+            SocketChannel opened = SocketChannel.open();
+            try {
+                opened.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                opened.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+                opened.socket().connect(target, CONNECT_TIMEOUT_MILLIS);
+            } catch (IOException e) {
+                opened.close();
+                throw e;
+            }
+            return opened;
+        }
+
+        private void watchForClose(SocketChannel watched) {
+            ByteBuffer discard = ByteBuffer.allocate(512);
+            try {
+                while (watched.read(discard) >= 0) {
+                    discard.clear();
+                }
+            } catch (IOException e) {
+                // Closed by us or reset by the target
+            }
+            // The next write fails and reconnects
+            closeQuietly(watched);
+        }
+
+        private void closeQuietly(SocketChannel closing) {
+            try {
+                closing.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close connection to {}", target, e);
+            }
+        }
+
+        void close() {
+            closed = true;
+            writeLock.lock();
+            try {
+                writePending();
+                synchronized (this) {
+                    if (!pending.isEmpty()) {
+                        logger.error("Dropping {} message(s) to {}: not connected", pending.size(), target);
+                        pending.clear();
+                    }
+                    if (channel != null) {
+                        closeQuietly(channel);
+                        channel = null;
+                    }
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.arnonse.snmp23.sender;
+
+import com.arnonse.snmp23.config.SenderTransportConfig;
+import com.arnonse.snmp23.config.SnmpV3Config;
+import com.arnonse.snmp23.service.EngineState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snmp4j.TransportMapping;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Shares SNMPv3 senders between tenants.
+ * All senders send through one pooled, batching UDP transport and one pooled TCP transport, and tenants whose profiles use the same engine ID
+ * share one sender, so its USM user table and localized keys are built once per engine.
+ * A profile that redefines a user of an existing engine with other credentials gets a sibling
+ * sender that continues the engine's boots and time rather than rebooting it.
+ */
+public class SenderPool {
+    private static final Logger logger = LoggerFactory.getLogger(SenderPool.class);
+
+    private final List<SnmpV3TrapSender> senders = new ArrayList<>();
+    private final SenderTransportConfig transportConfig;
+    private final int sendThreads;
+    private List<TransportMapping<?>> transports;
+
+    /**
+     * @param sendThreads number of send workers; by default each gets its own socket
+     */
+    public SenderPool(SenderTransportConfig transportConfig, int sendThreads) {
+        this.transportConfig = transportConfig;
+        this.sendThreads = sendThreads;
+    }
+
+    /**
+     * Returns a sender for {@code profile} with its user registered and keys localized, creating
+     * and initializing one if needed. {@code engineStart} is consulted once per new engine ID.
+     */
+    public synchronized SnmpV3TrapSender senderFor(SnmpV3Config profile, Function<String, EngineState> engineStart)
+            throws IOException {
+        SnmpV3TrapSender sibling = null;
+        for (SnmpV3TrapSender sender : senders) {
+            if (sender.accepts(profile)) {
+                sender.ensureUserRegistered(profile);
+                return sender;
+            }
+            if (sibling == null && sender.usesEngine(profile)) {
+                sibling = sender;
+            }
+        }
+
+        if (transports == null) {
+            BatchingUdpTransportMapping udp = new BatchingUdpTransportMapping(transportConfig, sendThreads);
+            CoalescingTcpTransportMapping tcp = new CoalescingTcpTransportMapping();
+            udp.listen();
+            tcp.listen();
+            transports = List.of(udp, tcp);
+        }
+        SnmpV3TrapSender sender = new SnmpV3TrapSender(profile, transports);
+        if (sibling != null) {
+            sender.initialize(sibling.getEngineBoots(), sibling.getEngineTime());
+        } else {
+            EngineState state = engineStart.apply(profile.engineId());
+            sender.initialize(state.boots(), state.engineTime());
+        }
+        sender.ensureUserRegistered(profile);
+        senders.add(sender);
+        return sender;
+    }
+
+    /**
+     * Closes every sender not in {@code inUse}, e.g. after a reload retired the tenants using it.
+     */
+    public synchronized void closeUnused(Collection<SnmpV3TrapSender> inUse) throws IOException {
+        Iterator<SnmpV3TrapSender> it = senders.iterator();
+        while (it.hasNext()) {
+            SnmpV3TrapSender sender = it.next();
+            if (!inUse.contains(sender)) {
+                sender.close();
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        for (SnmpV3TrapSender sender : senders) {
+            sender.close();
+        }
+        senders.clear();
+        if (transports != null) {
+            for (TransportMapping<?> transport : transports) {
+                transport.close();
+            }
+            transports = null;
+        }
+        logger.info("Sender pool closed");
+    }
+}
@@ -9,26 +9,49 @@ import org.snmp4j.mp.MPv3;
 import org.snmp4j.mp.SnmpConstants;
 import org.snmp4j.security.*;
 import org.snmp4j.smi.*;
+import org.snmp4j.transport.DefaultTcpTransportMapping;
 import org.snmp4j.transport.DefaultUdpTransportMapping;
 
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SnmpV3TrapSender {
     private static final Logger logger = LoggerFactory.getLogger(SnmpV3TrapSender.class);
 
     private final SnmpV3Config config;
+    private final List<TransportMapping<?>> sharedTransports;
     private Snmp snmp;
     private USM usm;
-    private final Set<String> registeredUsers = new HashSet<>();
-    private final long startTime = System.currentTimeMillis();
+    private MessageDispatcherImpl dispatcher;
+    private final Map<String, SnmpV3Config> registeredUsers = new ConcurrentHashMap<>();
+    private long startTime = System.currentTimeMillis();
 
     public SnmpV3TrapSender(SnmpV3Config config) {
+        this(config, List.of());
+    }
+
+    /**
+     * Creates a sender that sends through transports shared with other senders, e.g. one for UDP
+     * and one for TCP. The shared transports must already be listening and are not closed by
+     * {@link #close()}.
+     */
+    public SnmpV3TrapSender(SnmpV3Config config, List<TransportMapping<?>> sharedTransports) {
         this.config = config;
+        this.sharedTransports = List.copyOf(sharedTransports);
     }
 
     public void initialize(int engineBoots) throws IOException {
+        initialize(engineBoots, 0);
+    }
+
+    /**
+     * Initializes the sender continuing an engine that has already been up for
+     * {@code engineTime} seconds in its current boot, e.g. when replacing a sender on reload.
+     */
+    public void initialize(int engineBoots, int engineTime) throws IOException {
         logger.info("Initializing SNMPv3 trap sender for target {}:{}",
                 config.targetHost(), config.targetPort());
 
@@ -42,30 +65,55 @@ public class SnmpV3TrapSender {
         protocols.addPrivacyProtocol(new PrivAES256());
         protocols.addPrivacyProtocol(new PrivDES());
 
-        TransportMapping<?> transport = new DefaultUdpTransportMapping();
-        MessageDispatcher dispatcher = new MessageDispatcherImpl();
+        List<TransportMapping<?>> transports = new ArrayList<>(sharedTransports);
+        if (transports.isEmpty()) {
+            transports.add(new DefaultUdpTransportMapping());
+            if (config.transport() == SnmpV3Config.Transport.TCP) {
+                transports.add(new DefaultTcpTransportMapping());
+            }
+        }
+        dispatcher = new MessageDispatcherImpl();
 
         OctetString customEngineId = parseEngineId(config.engineId());
 
         // Use the persisted boot count from JSON
         usm = new USM(protocols, customEngineId, engineBoots);
+        if (engineTime > 0) {
+            usm.setLocalEngine(customEngineId, engineBoots, engineTime);
+            startTime = System.currentTimeMillis() - engineTime * 1000L;
+        }
         SecurityModels.getInstance().addSecurityModel(usm);
 
         dispatcher.addMessageProcessingModel(new MPv3(usm));
 
-        snmp = new Snmp(dispatcher, transport);
-        transport.listen();
+        snmp = new Snmp(dispatcher, transports.get(0));
+        for (TransportMapping<?> transport : transports.subList(1, transports.size())) {
+            snmp.addTransportMapping(transport);
+        }
+        if (sharedTransports.isEmpty()) {
+            for (TransportMapping<?> transport : transports) {
+                transport.listen();
+            }
+        }
 
-        logger.info("SNMPv3 trap sender initialized with EngineID: {} and Boots: {}",
-                customEngineId.toHexString(), engineBoots);
+        logger.info("SNMPv3 trap sender initialized with EngineID: {}, Boots: {} and Time: {}",
+                customEngineId.toHexString(), engineBoots, engineTime);
     }
 
     public void sendTrap(TrapEvent trapEvent) {
+        sendTrap(trapEvent, config);
+    }
+
+    /**
+     * Forwards a trap to the target and as the user of {@code profile}, which must use
+     * this sender's engine ID. Lets tenants that share an engine share one sender.
+     */
+    public void sendTrap(TrapEvent trapEvent, SnmpV3Config profile) {
         try {
-            OctetString targetEngineId = parseEngineId(config.engineId());
-            OctetString secName = new OctetString(config.username());
+            OctetString targetEngineId = parseEngineId(profile.engineId());
+            OctetString secName = new OctetString(profile.username());
 
-            ensureUserRegistered(secName, targetEngineId);
+            ensureUserRegistered(profile);
 
             ScopedPDU pdu = new ScopedPDU();
             pdu.setType(PDU.NOTIFICATION);
@@ -81,7 +129,9 @@ public class SnmpV3TrapSender {
             }
 
             UserTarget target = new UserTarget();
-            target.setAddress(new UdpAddress(config.targetHost() + "/" + config.targetPort()));
+            String targetAddress = profile.targetHost() + "/" + profile.targetPort();
+            target.setAddress(profile.transport() == SnmpV3Config.Transport.TCP
+                    ? new TcpAddress(targetAddress) : new UdpAddress(targetAddress));
             target.setVersion(SnmpConstants.version3);
             target.setSecurityLevel(SecurityLevel.AUTH_PRIV);
             target.setSecurityName(secName);
@@ -90,34 +140,83 @@ public class SnmpV3TrapSender {
             target.setRetries(1);
 
             snmp.send(pdu, target);
-            logger.info("Trap successfully forwarded to {}", config.targetHost());
+            logger.info("Trap successfully forwarded to {}", profile.targetHost());
 
         } catch (Exception e) {
             logger.error("Trap forwarding failed: " + e.getMessage(), e);
         }
     }
 
-    private synchronized void ensureUserRegistered(OctetString secName, OctetString engineId) {
-        String userKey = secName.toString() + ":" + engineId.toHexString();
-        if (!registeredUsers.contains(userKey)) {
+    /**
+     * Returns whether {@code profile} can be sent through this sender: it must use the same
+     * engine ID and must not redefine an already registered user with other credentials.
+     */
+    public synchronized boolean accepts(SnmpV3Config profile) {
+        if (!usesEngine(profile)) {
+            return false;
+        }
+        SnmpV3Config registered = registeredUsers.get(profile.username());
+        return registered == null || sameCredentials(registered, profile);
+    }
+
+    boolean usesEngine(SnmpV3Config profile) {
+        return parseEngineId(profile.engineId()).equals(parseEngineId(config.engineId()));
+    }
+
+    void ensureUserRegistered(SnmpV3Config profile) {
+        if (registeredUsers.containsKey(profile.username())) {
+            return;
+        }
+        synchronized (this) {
+            if (registeredUsers.containsKey(profile.username())) {
+                return;
+            }
+            OctetString secName = new OctetString(profile.username());
             UsmUser user = new UsmUser(
                     secName,
-                    getAuthProtocolOid(config.authProtocol()),
-                    new OctetString(config.authPassword()),
-                    getPrivProtocolOid(config.privProtocol()),
-                    new OctetString(config.privPassword())
+                    getAuthProtocolOid(profile.authProtocol()),
+                    new OctetString(profile.authPassword()),
+                    getPrivProtocolOid(profile.privProtocol()),
+                    new OctetString(profile.privPassword())
             );
 
-            snmp.getUSM().addUser(secName, user);
-            registeredUsers.add(userKey);
+            // Localize the keys for our engine now rather than on the first send
+            usm.addUser(user, parseEngineId(config.engineId()));
+            registeredUsers.put(profile.username(), profile);
         }
     }
 
     public void close() throws IOException {
-        if (snmp != null) snmp.close();
+        if (snmp != null) {
+            for (TransportMapping<?> sharedTransport : sharedTransports) {
+                // Detach so closing this session leaves the shared sockets open for the others
+                dispatcher.removeTransportMapping(sharedTransport);
+                sharedTransport.removeTransportListener(dispatcher);
+            }
+            snmp.close();
+        }
         logger.info("SNMPv3 trap sender closed");
     }
 
+    public SnmpV3Config getConfig() {
+        return config;
+    }
+
+    public int getEngineBoots() {
+        return usm.getEngineBoots();
+    }
+
+    public int getEngineTime() {
+        return usm.getEngineTime();
+    }
+
+    private static boolean sameCredentials(SnmpV3Config a, SnmpV3Config b) {
+        return a.authProtocol() == b.authProtocol()
+                && a.privProtocol() == b.privProtocol()
+                && a.authPassword().equals(b.authPassword())
+                && a.privPassword().equals(b.privPassword());
+    }
+
     private OID getTrapOid(TrapEvent trapEvent) {
         for (VariableBinding vb : trapEvent.getVariableBindings()) {
             if (vb.getOid().equals(SnmpConstants.snmpTrapOID)) {
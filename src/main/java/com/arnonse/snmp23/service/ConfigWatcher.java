@@ -0,0 +1,105 @@
+package com.arnonse.snmp23.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+/**
+ * Watches the configuration file and hands its properties to a callback whenever its content changes.
+ * Invalid or unreadable files are logged and ignored, so the running configuration stays in place.
+ */
+public class ConfigWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(ConfigWatcher.class);
+
+    // Editors often write a file in several steps; wait for them to settle before reading
+    private static final long SETTLE_MILLIS = 500;
+
+    private final Path file;
+    private final Consumer<Properties> onChange;
+    private Properties current;
+    private WatchService watchService;
+    private Thread thread;
+
+    public ConfigWatcher(Path file, Properties current, Consumer<Properties> onChange) {
+        this.file = file.toAbsolutePath();
+        this.current = current;
+        this.onChange = onChange;
+    }
+
+    public void start() throws IOException {
+        watchService = file.getFileSystem().newWatchService();
+        // Watch the directory: editors and config management often replace the file via rename
+        file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+
+        thread = new Thread(this::run, "ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Watching {} for configuration changes", file);
+    }
+
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (file.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+
+                if (changed) {
+                    Thread.sleep(SETTLE_MILLIS);
+                    while ((key = watchService.poll()) != null) {
+                        key.pollEvents();
+                        key.reset();
+                    }
+                    reload();
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            logger.info("Stopped watching {}", file);
+        }
+    }
+
+    private void reload() {
+        Properties props = new Properties();
+        try (InputStream input = Files.newInputStream(file)) {
+            props.load(input);
+        } catch (IOException e) {
+            logger.error("Failed to read {}, keeping current configuration", file, e);
+            return;
+        }
+        if (props.equals(current)) {
+            logger.debug("{} changed on disk but its properties did not", file);
+            return;
+        }
+
+        logger.info("Configuration file {} changed, reloading", file);
+        try {
+            onChange.accept(props);
+            current = props;
+        } catch (RuntimeException e) {
+            logger.error("Invalid configuration in {}, keeping current configuration", file, e);
+        }
+    }
+}
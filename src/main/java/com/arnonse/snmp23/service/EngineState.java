@@ -0,0 +1,7 @@
+package com.arnonse.snmp23.service;
+
+/**
+ * SNMPv3 engine boots and engine time (seconds since the current boot) of one engine.
+ */
+public record EngineState(int boots, int engineTime) {
+}
@@ -1,43 +1,198 @@
 package com.arnonse.snmp23.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeMap;
 
+/**
+ * Persists SNMPv3 engine boots and periodically checkpointed engine time per engine ID.
+ * <p>
+ * Every update is a read-modify-write under an exclusive lock on {@code <file>.lock}, so several
+ * processes can share one state file. The new content is written to {@code <file>.tmp}, forced to
+ * disk and atomically renamed over the state file, so a crash leaves either the old or the new
+ * state, never a torn file.
+ */
 public class EngineStateManager {
     private static final Logger logger = LoggerFactory.getLogger(EngineStateManager.class);
+    private static final int MAX_BOOTS = Integer.MAX_VALUE;
+
+    // FileLock is held per JVM, so threads and instances within one process serialize here first
+    private static final Object PROCESS_LOCK = new Object();
+
     private final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
-    private final File stateFile;
+    private final Path stateFile;
+    private final Path tempFile;
+    private final Path lockFile;
+
+    private record StoredState(int boots, int engineTime, long checkpointedAt) {
+    }
 
     public EngineStateManager(String filePath) {
-        this.stateFile = new File(filePath);
+        this.stateFile = Path.of(filePath).toAbsolutePath();
+        this.tempFile = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        this.lockFile = stateFile.resolveSibling(stateFile.getFileName() + ".lock");
     }
 
-    public synchronized int incrementAndGetBoots(String engineId) {
-        Map<String, Integer> engineBoots = new HashMap<>();
-        if (stateFile.exists()) {
-            try {
-                engineBoots = mapper.readValue(stateFile, new TypeReference<Map<String, Integer>>() {});
+    /**
+     * Increments and returns the boot count of {@code engineId}; its engine time restarts at 0.
+     */
+    public int incrementAndGetBoots(String engineId) {
+        return start(engineId, false).boots();
+    }
+
+    /**
+     * Returns the state an engine should start with and persists it.
+     * <p>
+     * Normally the boot count is incremented and engine time restarts at 0. With {@code resume},
+     * an engine that has a checkpoint keeps its boot count and continues its engine time from the
+     * checkpoint plus the wall-clock time since, which is never less than any engine time it sent.
+     * If the wall clock went backwards the engine is rebooted instead.
+     */
+    public EngineState start(String engineId, boolean resume) {
+        synchronized (PROCESS_LOCK) {
+            try (FileChannel lockChannel = FileChannel.open(lockFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = lockChannel.lock();
+                try {
+                    return start(engineId, resume, read());
+                } finally {
+                    lock.release();
+                }
             } catch (IOException e) {
-                logger.error("Failed to read engine state JSON, starting from 0", e);
+                // Handing out an unpersisted boot count would be rejected as a replay after the next restart
+                throw new IllegalStateException("Failed to update engine state in " + stateFile, e);
             }
         }
+    }
 
-        int currentBoots = engineBoots.getOrDefault(engineId, 0) + 1;
-        engineBoots.put(engineId, currentBoots);
+    private EngineState start(String engineId, boolean resume, Map<String, StoredState> states) throws IOException {
+        StoredState previous = states.get(engineId);
+        long now = System.currentTimeMillis();
 
+        StoredState next;
+        if (resume && previous != null && previous.boots() > 0
+                && previous.checkpointedAt() > 0 && now >= previous.checkpointedAt()) {
+            long elapsed = (now - previous.checkpointedAt()) / 1000;
+            int engineTime = (int) Math.min(Integer.MAX_VALUE, previous.engineTime() + elapsed + 1);
+            next = new StoredState(previous.boots(), engineTime, now);
+            logger.info("Resuming engine {} at boots {} and time {}", engineId, next.boots(), engineTime);
+        } else {
+            int boots = (previous == null) ? 1 : (int) Math.min(MAX_BOOTS, previous.boots() + 1L);
+            next = new StoredState(boots, 0, now);
+            if (previous != null && previous.checkpointedAt() > 0) {
+                logger.info("Engine {} previous boot {} ran for at least {}s",
+                        engineId, previous.boots(), previous.engineTime());
+            }
+        }
+
+        states.put(engineId, next);
+        write(states);
+        return new EngineState(next.boots(), next.engineTime());
+    }
+
+    /**
+     * Records the current engine time of running engines. Engines whose stored boot count has
+     * moved on (e.g. another process now owns them) are left untouched.
+     */
+    public void checkpoint(Map<String, EngineState> running) {
+        if (running.isEmpty()) {
+            return;
+        }
+        synchronized (PROCESS_LOCK) {
+            try (FileChannel lockChannel = FileChannel.open(lockFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = lockChannel.lock();
+                try {
+                    checkpoint(running, read());
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                logger.error("Failed to checkpoint engine state to {}", stateFile, e);
+            }
+        }
+    }
+
+    private void checkpoint(Map<String, EngineState> running, Map<String, StoredState> states) throws IOException {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, EngineState> entry : running.entrySet()) {
+            StoredState stored = states.get(entry.getKey());
+            if (stored == null || stored.boots() == entry.getValue().boots()) {
+                states.put(entry.getKey(),
+                        new StoredState(entry.getValue().boots(), entry.getValue().engineTime(), now));
+            }
+        }
+        write(states);
+    }
+
+    private Map<String, StoredState> read() throws IOException {
+        Map<String, StoredState> states = new TreeMap<>();
+        JsonNode root;
         try {
-            mapper.writeValue(stateFile, engineBoots);
+            root = mapper.readTree(Files.readAllBytes(stateFile));
+        } catch (NoSuchFileException e) {
+            return states;
+        }
+        if (root == null || !root.isObject()) {
+            throw new IOException("Engine state file " + stateFile + " is not a JSON object");
+        }
+
+        Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            if (value.isInt()) {
+                // Format before engine time was tracked: {"<engineId>": <boots>}
+                states.put(field.getKey(), new StoredState(value.asInt(), 0, 0));
+            } else {
+                states.put(field.getKey(), new StoredState(
+                        value.path("boots").asInt(),
+                        value.path("engineTime").asInt(),
+                        value.path("checkpointedAt").asLong()));
+            }
+        }
+        return states;
+    }
+
+    private void write(Map<String, StoredState> states) throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        states.forEach((engineId, state) -> root.putObject(engineId)
+                .put("boots", state.boots())
+                .put("engineTime", state.engineTime())
+                .put("checkpointedAt", state.checkpointedAt()));
+
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(mapper.writeValueAsBytes(root));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tempFile, stateFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        // The rename lives in the directory; without this a power loss can bring back the old boots
+        try (FileChannel directory = FileChannel.open(stateFile.getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
         } catch (IOException e) {
-            logger.error("Failed to save engine state JSON", e);
+            // Not every platform can open a directory, e.g. Windows
+            logger.debug("Failed to sync directory {}", stateFile.getParent(), e);
         }
-        return currentBoots;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,182 @@
+package com.arnonse.snmp23.service;
+
+import com.arnonse.snmp23.model.TrapEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snmp4j.PDU;
+import org.snmp4j.PDUv1;
+import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BEROutputStream;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.GenericAddress;
+import org.snmp4j.smi.TcpAddress;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Spills traps that could not be forwarded before shutdown to a JSON-lines file, and
+ * replays them on the next start. Spilled traps are forced to disk before {@code spill} returns. PDUs are stored BER-encoded so every variable type survives.
+ */
+public class TrapSpillStore {
+    private static final Logger logger = LoggerFactory.getLogger(TrapSpillStore.class);
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Path spillFile;
+
+    public record SpilledTrap(
+            String tenant,
+            String sourceAddress,
+            int snmpVersion,
+            String community,
+            long receivedAt,
+            String pdu
+    ) {
+    }
+
+    public TrapSpillStore(String filePath) {
+        this.spillFile = Path.of(filePath);
+    }
+
+    public synchronized void spill(String tenant, List<TrapEvent> trapEvents) throws IOException {
+        if (trapEvents.isEmpty()) {
+            return;
+        }
+        List<SpilledTrap> records = new ArrayList<>();
+        for (TrapEvent trapEvent : trapEvents) {
+            if (trapEvent.getPdu() != null) {
+                records.add(toRecord(tenant, trapEvent));
+            }
+        }
+        append(records);
+        logger.warn("Spilled {} unsent traps of tenant {} to {}", trapEvents.size(), tenant, spillFile);
+    }
+
+    /**
+     * Hands every spilled trap to {@code consumer} with its tenant name, then deletes the file.
+     * Unreadable lines are logged and skipped. If the consumer interrupts the thread, the replay
+     * stops and the traps from the interrupted one on are kept in the file.
+     */
+    public synchronized void replay(BiConsumer<String, TrapEvent> consumer) throws IOException {
+        if (!Files.exists(spillFile)) {
+            return;
+        }
+
+        List<SpilledTrap> spilled = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(spillFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    spilled.add(mapper.readValue(line, SpilledTrap.class));
+                } catch (IOException e) {
+                    logger.error("Skipping corrupt spill record in {}", spillFile, e);
+                }
+            }
+        }
+
+        logger.info("Replaying {} spilled traps from {}", spilled.size(), spillFile);
+        for (int i = 0; i < spilled.size(); i++) {
+            SpilledTrap record = spilled.get(i);
+            try {
+                consumer.accept(record.tenant(), toTrapEvent(record));
+            } catch (IOException | RuntimeException e) {
+                logger.error("Skipping unreadable spilled trap of tenant {}", record.tenant(), e);
+            }
+            if (Thread.interrupted()) {
+                // Keep what was not replayed for the next start; the interrupted trap may be sent twice
+                List<SpilledTrap> remaining = spilled.subList(i, spilled.size());
+                try {
+                    replace(remaining);
+                } finally {
+                    Thread.currentThread().interrupt();
+                }
+                logger.warn("Replay interrupted, kept {} spilled traps in {}", remaining.size(), spillFile);
+                return;
+            }
+        }
+        Files.delete(spillFile);
+    }
+
+    private void append(List<SpilledTrap> records) throws IOException {
+        write(spillFile, records, true);
+    }
+
+    /**
+     * Replaces the spill file with {@code records} through a temporary file, so a crash leaves
+     * either the old or the new file and never loses a trap.
+     */
+    private void replace(List<SpilledTrap> records) throws IOException {
+        Path tempFile = spillFile.resolveSibling(spillFile.getFileName() + ".tmp");
+        write(tempFile, records, false);
+        Files.move(tempFile, spillFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+    }
+
+    private void write(Path file, List<SpilledTrap> records, boolean append) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (SpilledTrap record : records) {
+            lines.append(mapper.writeValueAsString(record)).append('\n');
+        }
+        // A stream rather than a FileChannel, which an interrupted shutdown or replay thread would close
+        try (FileOutputStream out = new FileOutputStream(file.toFile(), append)) {
+            out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+            // The process is about to exit; the traps must survive a power loss too
+            out.getFD().sync();
+        }
+    }
+
+    private void syncDirectory() {
+        Path directory = spillFile.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform can open a directory, e.g. Windows
+            logger.debug("Failed to sync directory {}", directory, e);
+        }
+    }
+
+    private SpilledTrap toRecord(String tenant, TrapEvent trapEvent) throws IOException {
+        PDU pdu = trapEvent.getPdu();
+        BEROutputStream out = new BEROutputStream(ByteBuffer.allocate(pdu.getBERLength()));
+        pdu.encodeBER(out);
+
+        Address source = trapEvent.getSourceAddress();
+        String address = (source instanceof TcpAddress ? "tcp:" : "udp:") + source;
+        return new SpilledTrap(
+                tenant,
+                address,
+                trapEvent.getSnmpVersion(),
+                trapEvent.getCommunity(),
+                trapEvent.getReceivedAt().toEpochMilli(),
+                Base64.getEncoder().encodeToString(out.getBuffer().array())
+        );
+    }
+
+    private TrapEvent toTrapEvent(SpilledTrap record) throws IOException {
+        PDU pdu = (record.snmpVersion() == 1) ? new PDUv1() : new PDU();
+        pdu.decodeBER(new BERInputStream(ByteBuffer.wrap(Base64.getDecoder().decode(record.pdu()))));
+        return new TrapEvent(
+                GenericAddress.parse(record.sourceAddress()),
+                record.snmpVersion(),
+                record.community(),
+                pdu,
+                Instant.ofEpochMilli(record.receivedAt())
+        );
+    }
+}
@@ -0,0 +1,204 @@
+package com.arnonse.snmp23.tenant;
+
+import com.arnonse.snmp23.config.TenantConfig;
+import com.arnonse.snmp23.model.TrapEvent;
+import com.arnonse.snmp23.sender.SnmpV3TrapSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-tenant path from the listener to the shared send workers.
+ * Each tenant has its own bounded queue and rate limit, so a noisy tenant drops its own
+ * traps instead of starving the decode or send threads shared with other tenants.
+ */
+public class TenantPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(TenantPipeline.class);
+
+    // Traps sent per turn on a send worker before yielding to other tenants
+    private static final int DRAIN_BATCH = 64;
+    // How often a waiting resubmit checks for queue space
+    private static final long RESUBMIT_POLL_MILLIS = 1;
+
+    private final TenantConfig tenant;
+    private final SnmpV3TrapSender sender;
+    private final Executor sendWorkers;
+    private final BlockingQueue<TrapEvent> queue;
+    // Resubmitted traps leave the rest of the queue to live traffic
+    private final int resubmitLimit;
+    private final TokenBucket rateLimit;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicInteger submitters = new AtomicInteger();
+    private volatile boolean retired = false;
+    // Polled from the queue but not yet handed to the transport; one drain task runs at a time
+    private volatile TrapEvent inFlight;
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+
+    public TenantPipeline(TenantConfig tenant, SnmpV3TrapSender sender, Executor sendWorkers) {
+        this.tenant = tenant;
+        this.sender = sender;
+        this.sendWorkers = sendWorkers;
+        this.queue = new ArrayBlockingQueue<>(tenant.queueCapacity());
+        this.resubmitLimit = Math.max(1, tenant.queueCapacity() / 2);
+        this.rateLimit = tenant.maxTrapsPerSecond() > 0 ? new TokenBucket(tenant.maxTrapsPerSecond()) : null;
+    }
+
+    /**
+     * Accepts a trap from the listener. Never blocks the calling dispatcher thread.
+     *
+     * @return false if this pipeline has been retired and the trap must go to its successor
+     */
+    public boolean submit(TrapEvent trapEvent) {
+        submitters.incrementAndGet();
+        try {
+            if (retired) {
+                return false;
+            }
+            if (rateLimit != null && !rateLimit.tryAcquire()) {
+                rateLimited.increment();
+                if (rateLimited.sum() % 1000 == 1) {
+                    logger.warn("Tenant {} over {} traps/s, {} traps dropped so far",
+                            tenant.name(), tenant.maxTrapsPerSecond(), rateLimited.sum());
+                }
+                return true;
+            }
+            if (!queue.offer(trapEvent)) {
+                overflowed.increment();
+                if (overflowed.sum() % 1000 == 1) {
+                    logger.warn("Tenant {} queue full ({}), {} traps dropped so far",
+                            tenant.name(), tenant.queueCapacity(), overflowed.sum());
+                }
+                return true;
+            }
+            scheduleDrain();
+            return true;
+        } finally {
+            submitters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Queues a trap that was accepted earlier, e.g. replayed from the spill file or left over by
+     * a retired predecessor. Skips the rate limit, which it already passed, and waits for queue
+     * space instead of dropping, so a large backlog is not lost to a full queue. It only fills
+     * half of the queue, so live traps arriving meanwhile are not dropped as overflow.
+     *
+     * @return false if this pipeline has been retired and the trap must go to its successor
+     */
+    public boolean resubmit(TrapEvent trapEvent) throws InterruptedException {
+        submitters.incrementAndGet();
+        try {
+            while (!retired) {
+                if (queue.size() < resubmitLimit && queue.offer(trapEvent)) {
+                    scheduleDrain();
+                    return true;
+                }
+                // Make sure the queue is being drained while we wait
+                scheduleDrain();
+                Thread.sleep(RESUBMIT_POLL_MILLIS);
+            }
+            return false;
+        } finally {
+            submitters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops accepting traps and waits until everything already accepted has been sent
+     * with this pipeline's sender.
+     *
+     * @return true if the pipeline drained within {@code timeoutMillis}
+     */
+    public boolean retire(long timeoutMillis) throws InterruptedException {
+        retired = true;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (submitters.get() > 0 || !queue.isEmpty() || drainScheduled.get()) {
+            if (System.currentTimeMillis() >= deadline) {
+                logger.warn("Tenant {} pipeline retired with {} traps still queued", tenant.name(), queue.size());
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    /**
+     * Removes and returns the traps that were accepted but not sent, e.g. to spill them after
+     * {@link #retire(long)} timed out.
+     */
+    public List<TrapEvent> takeRemaining() {
+        List<TrapEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        return remaining;
+    }
+
+    /**
+     * Returns the trap a send worker is sending right now, if any. Once the queue is taken, a
+     * trap still in flight when the send workers do not finish in time is spilled with it.
+     */
+    public TrapEvent getInFlight() {
+        return inFlight;
+    }
+
+    public TenantConfig getTenant() {
+        return tenant;
+    }
+
+    public SnmpV3TrapSender getSender() {
+        return sender;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    public long getOverflowCount() {
+        return overflowed.sum();
+    }
+
+    private void scheduleDrain() {
+        // At most one drain task per tenant is queued on the shared workers at a time
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                sendWorkers.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Send workers are shutting down; what is queued is spilled by the caller of retire()
+                drainScheduled.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < DRAIN_BATCH; i++) {
+                TrapEvent trapEvent = queue.poll();
+                if (trapEvent == null) {
+                    break;
+                }
+                inFlight = trapEvent;
+                sender.sendTrap(trapEvent, tenant.v3());
+                inFlight = null;
+            }
+        } finally {
+            inFlight = null;
+            drainScheduled.set(false);
+            if (!queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.arnonse.snmp23.tenant;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket allowing {@code ratePerSecond} acquisitions per second with a one-second burst.
+ */
+class TokenBucket {
+    private final double ratePerNano;
+    private final double capacity;
+    private final LongSupplier nanoClock;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(int ratePerSecond) {
+        this(ratePerSecond, System::nanoTime);
+    }
+
+    TokenBucket(int ratePerSecond, LongSupplier nanoClock) {
+        this.ratePerNano = ratePerSecond / 1_000_000_000.0;
+        this.capacity = ratePerSecond;
+        this.tokens = ratePerSecond;
+        this.nanoClock = nanoClock;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    synchronized boolean tryAcquire() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+        lastRefill = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+}
@@ -0,0 +1,276 @@
+package com.arnonse.snmp23;
+
+import com.arnonse.snmp23.config.AnalyticsConfig;
+import com.arnonse.snmp23.config.ListenerConfig;
+import com.arnonse.snmp23.config.SnmpV3Config;
+import com.arnonse.snmp23.config.TenantConfig;
+import com.arnonse.snmp23.config.WorkerConfig;
+import com.arnonse.snmp23.service.EngineState;
+import org.junit.jupiter.api.Test;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.TransportMapping;
+import org.snmp4j.asn1.BER;
+import org.snmp4j.asn1.BEROutputStream;
+import org.snmp4j.mp.MPv3;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.security.*;
+import org.snmp4j.smi.*;
+import org.snmp4j.transport.DefaultTcpTransportMapping;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotReloadTest {
+    private static final String ENGINE_ID = "0x8000047304434b4d39383736353433323131";
+
+    @Test
+    void reloadSwapsCredentialsAndPortWithoutReboot() throws Exception {
+        BlockingQueue<PDU> received = new LinkedBlockingQueue<>();
+        SecurityProtocols protocols = SecurityProtocols.getInstance();
+        protocols.addAuthenticationProtocol(new AuthSHA());
+        protocols.addPrivacyProtocol(new PrivAES128());
+        USM receiverUsm = new USM(protocols, new OctetString(MPv3.createLocalEngineID()), 0);
+        receiverUsm.addUser(user("Passw0rd1!"), engineId());
+        Snmp receiver = startReceiver(receiverUsm, received);
+
+        AtomicInteger bootLookups = new AtomicInteger();
+        SnmpForwarderApplication app = new SnmpForwarderApplication(
+                List.of(tenant(11163, "Passw0rd1!")), WorkerConfig.builder().build(), AnalyticsConfig.builder().build());
+        try {
+            app.start(engineId -> new EngineState(bootLookups.incrementAndGet(), 0));
+
+            sendV2cTrap(11163);
+            assertNotNull(received.poll(5, TimeUnit.SECONDS), "trap forwarded before reload");
+
+            receiverUsm.removeAllUsers(new OctetString("tenantUser"));
+            receiverUsm.addUser(user("Passw0rd2!"), engineId());
+            app.reload(List.of(tenant(11164, "Passw0rd2!")));
+
+            sendV2cTrap(11164);
+            assertNotNull(received.poll(5, TimeUnit.SECONDS), "trap forwarded with reloaded profile");
+            assertEquals(1, bootLookups.get(), "reload must not reboot a running engine");
+        } finally {
+            app.stop();
+            receiver.close();
+        }
+    }
+
+    @Test
+    void reloadOnSamePortWithNewAddressKeepsProfileChange() throws Exception {
+        BlockingQueue<PDU> received = new LinkedBlockingQueue<>();
+        USM receiverUsm = receiverUsm("Passw0rd1!");
+        Snmp receiver = startReceiver(receiverUsm, received);
+
+        SnmpForwarderApplication app = new SnmpForwarderApplication(
+                List.of(tenant(11166, "Passw0rd1!")), WorkerConfig.builder().build(), AnalyticsConfig.builder().build());
+        try {
+            app.start(1);
+
+            receiverUsm.removeAllUsers(new OctetString("tenantUser"));
+            receiverUsm.addUser(user("Passw0rd2!"), engineId());
+            app.reload(List.of(tenant(ListenerConfig.builder().bindAddress("0.0.0.0").listenPort(11166).build(),
+                    "Passw0rd2!")));
+
+            sendV2cTrap(11166);
+            assertNotNull(received.poll(5, TimeUnit.SECONDS), "trap forwarded with reloaded profile on rebound port");
+        } finally {
+            app.stop();
+            receiver.close();
+        }
+    }
+
+    @Test
+    void reloadTogglingTcpOnSamePortKeepsProfileChange() throws Exception {
+        BlockingQueue<PDU> received = new LinkedBlockingQueue<>();
+        USM receiverUsm = receiverUsm("Passw0rd1!");
+        Snmp receiver = startReceiver(receiverUsm, received);
+
+        SnmpForwarderApplication app = new SnmpForwarderApplication(
+                List.of(tenant(11168, "Passw0rd1!")), WorkerConfig.builder().build(), AnalyticsConfig.builder().build());
+        try {
+            app.start(1);
+
+            receiverUsm.removeAllUsers(new OctetString("tenantUser"));
+            receiverUsm.addUser(user("Passw0rd2!"), engineId());
+            app.reload(List.of(tenant(ListenerConfig.builder().bindAddress("127.0.0.1").listenPort(11168)
+                    .tcp(true).build(), "Passw0rd2!")));
+
+            // The TCP transport writes asynchronously, so the agent stays open until the trap arrived
+            DefaultTcpTransportMapping agentTransport = new DefaultTcpTransportMapping();
+            Snmp agent = new Snmp(agentTransport);
+            try {
+                agentTransport.listen();
+                agent.send(v2cTrap(), v2cTarget(new TcpAddress("127.0.0.1/11168")));
+                assertNotNull(received.poll(5, TimeUnit.SECONDS), "trap received over TCP forwarded with reloaded profile");
+            } finally {
+                agent.close();
+            }
+            sendV2cTrap(11168);
+            assertNotNull(received.poll(5, TimeUnit.SECONDS), "UDP listener kept across TCP toggle");
+        } finally {
+            app.stop();
+            receiver.close();
+        }
+    }
+
+    @Test
+    void reloadChangingTcpIdleTimeoutKeepsAgentConnections() throws Exception {
+        BlockingQueue<PDU> received = new LinkedBlockingQueue<>();
+        Snmp receiver = startReceiver(receiverUsm("Passw0rd1!"), received);
+
+        ListenerConfig.Builder listener = ListenerConfig.builder().bindAddress("127.0.0.1").listenPort(11171).tcp(true);
+        SnmpForwarderApplication app = new SnmpForwarderApplication(
+                List.of(tenant(listener.build(), "Passw0rd1!")), WorkerConfig.builder().build(),
+                AnalyticsConfig.builder().build());
+        try (Socket agent = new Socket()) {
+            app.start(1);
+            agent.connect(new InetSocketAddress("127.0.0.1", 11171), 5000);
+            agent.getOutputStream().write(encodeV2cTrap());
+            assertNotNull(received.poll(5, TimeUnit.SECONDS), "trap forwarded before reload");
+
+            app.reload(List.of(tenant(listener.tcpIdleTimeoutMillis(60_000).build(), "Passw0rd1!")));
+
+            agent.getOutputStream().write(encodeV2cTrap());
+            assertNotNull(received.poll(5, TimeUnit.SECONDS), "agent connection kept across reload");
+        } finally {
+            app.stop();
+            receiver.close();
+        }
+    }
+
+    @Test
+    void reloadRenamingTenantOnSamePortKeepsListening() throws Exception {
+        BlockingQueue<PDU> received = new LinkedBlockingQueue<>();
+        USM receiverUsm = receiverUsm("Passw0rd1!");
+        Snmp receiver = startReceiver(receiverUsm, received);
+
+        SnmpForwarderApplication app = new SnmpForwarderApplication(
+                List.of(tenant(11169, "Passw0rd1!")), WorkerConfig.builder().build(), AnalyticsConfig.builder().build());
+        try {
+            app.start(1);
+
+            receiverUsm.removeAllUsers(new OctetString("tenantUser"));
+            receiverUsm.addUser(user("Passw0rd2!"), engineId());
+            app.reload(List.of(tenant("acme-renamed",
+                    ListenerConfig.builder().bindAddress("127.0.0.1").listenPort(11169).build(), "Passw0rd2!")));
+
+            sendV2cTrap(11169);
+            assertNotNull(received.poll(5, TimeUnit.SECONDS), "trap forwarded by the renamed tenant");
+        } finally {
+            app.stop();
+            receiver.close();
+        }
+    }
+
+    private USM receiverUsm(String password) {
+        SecurityProtocols protocols = SecurityProtocols.getInstance();
+        protocols.addAuthenticationProtocol(new AuthSHA());
+        protocols.addPrivacyProtocol(new PrivAES128());
+        USM usm = new USM(protocols, new OctetString(MPv3.createLocalEngineID()), 0);
+        usm.addUser(user(password), engineId());
+        return usm;
+    }
+
+    private TenantConfig tenant(int port, String password) {
+        return tenant(ListenerConfig.builder().bindAddress("127.0.0.1").listenPort(port).build(), password);
+    }
+
+    private TenantConfig tenant(ListenerConfig listener, String password) {
+        return tenant("acme", listener, password);
+    }
+
+    private TenantConfig tenant(String name, ListenerConfig listener, String password) {
+        return TenantConfig.builder()
+                .name(name)
+                .listener(listener)
+                .v3(SnmpV3Config.builder()
+                        .targetHost("127.0.0.1")
+                        .targetPort(11262)
+                        .username("tenantUser")
+                        .authPassword(password)
+                        .privPassword(password)
+                        .engineId(ENGINE_ID)
+                        .build())
+                .build();
+    }
+
+    private UsmUser user(String password) {
+        return new UsmUser(new OctetString("tenantUser"), AuthSHA.ID, new OctetString(password),
+                PrivAES128.ID, new OctetString(password));
+    }
+
+    private OctetString engineId() {
+        return new OctetString(HexFormat.of().parseHex(ENGINE_ID.substring(2)));
+    }
+
+    private Snmp startReceiver(USM usm, BlockingQueue<PDU> received) throws Exception {
+        MessageDispatcherImpl dispatcher = new MessageDispatcherImpl();
+        dispatcher.addMessageProcessingModel(new MPv3(usm));
+        TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping(new UdpAddress("127.0.0.1/11262"));
+        Snmp snmp = new Snmp(dispatcher, transport);
+        snmp.addCommandResponder(new CommandResponder() {
+            @Override
+            public <A extends Address> void processPdu(CommandResponderEvent<A> event) {
+                received.add(event.getPDU());
+            }
+        });
+        transport.listen();
+        return snmp;
+    }
+
+    private void sendV2cTrap(int port) throws Exception {
+        TransportMapping<?> transport = new DefaultUdpTransportMapping();
+        Snmp snmp = new Snmp(transport);
+        transport.listen();
+        try {
+            snmp.send(v2cTrap(), v2cTarget(new UdpAddress("127.0.0.1/" + port)));
+        } finally {
+            snmp.close();
+        }
+    }
+
+    private byte[] encodeV2cTrap() throws IOException {
+        Integer32 version = new Integer32(SnmpConstants.version2c);
+        OctetString community = new OctetString("public");
+        PDU pdu = v2cTrap();
+        int length = version.getBERLength() + community.getBERLength() + pdu.getBERLength();
+        ByteBuffer buffer = ByteBuffer.allocate(1 + BER.getBERLengthOfLength(length) + length);
+        BEROutputStream out = new BEROutputStream(buffer);
+        BER.encodeHeader(out, BER.SEQUENCE, length);
+        version.encodeBER(out);
+        community.encodeBER(out);
+        pdu.encodeBER(out);
+        return buffer.array();
+    }
+
+    private PDU v2cTrap() {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.TRAP);
+        pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, new OID("1.3.6.1.4.1.9999.0.1")));
+        return pdu;
+    }
+
+    private CommunityTarget<Address> v2cTarget(Address address) {
+        CommunityTarget<Address> target = new CommunityTarget<>();
+        target.setCommunity(new OctetString("public"));
+        target.setAddress(address);
+        target.setVersion(SnmpConstants.version2c);
+        return target;
+    }
+}
@@ -0,0 +1,173 @@
+package com.arnonse.snmp23;
+
+import com.arnonse.snmp23.config.AnalyticsConfig;
+import com.arnonse.snmp23.config.ListenerConfig;
+import com.arnonse.snmp23.config.ShutdownConfig;
+import com.arnonse.snmp23.config.SnmpV3Config;
+import com.arnonse.snmp23.config.TenantConfig;
+import com.arnonse.snmp23.config.WorkerConfig;
+import com.arnonse.snmp23.model.TrapEvent;
+import com.arnonse.snmp23.service.TrapSpillStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.TransportMapping;
+import org.snmp4j.mp.MPv3;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.security.*;
+import org.snmp4j.smi.*;
+import org.snmp4j.transport.DefaultTcpTransportMapping;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillReplayTest {
+    private static final String ENGINE_ID = "0x8000047304434b4d39383736353433323134";
+    private static final OID SEQUENCE = new OID("1.3.6.1.4.1.9999.2");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void replaysSpillLargerThanQueueAndRateLimit() throws Exception {
+        Path spillFile = tempDir.resolve("spill.jsonl");
+        spill(spillFile, 60);
+
+        Set<Integer> received = ConcurrentHashMap.newKeySet();
+        Snmp receiver = startReceiver(new DefaultUdpTransportMapping(new UdpAddress("127.0.0.1/11264")), received);
+
+        TenantConfig tenant = TenantConfig.builder()
+                .name("acme")
+                .listener(ListenerConfig.builder().bindAddress("127.0.0.1").listenPort(11167).build())
+                .v3(v3(11264, SnmpV3Config.Transport.UDP))
+                .queueCapacity(10)
+                .maxTrapsPerSecond(5)
+                .build();
+        SnmpForwarderApplication app = new SnmpForwarderApplication(List.of(tenant), WorkerConfig.builder().build(),
+                AnalyticsConfig.builder().build(), ShutdownConfig.builder().spillFile(spillFile.toString()).build());
+        try {
+            app.start(1);
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (received.size() < 60 && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+            assertEquals(60, received.size(), "every spilled trap forwarded");
+            assertFalse(Files.exists(spillFile));
+        } finally {
+            app.stop();
+            receiver.close();
+        }
+    }
+
+    @Test
+    void stopSendsOrSpillsEveryQueuedTrap() throws Exception {
+        Path spillFile = tempDir.resolve("spill.jsonl");
+        spill(spillFile, 3000);
+
+        // TCP, so the receiver cannot lose traps the forwarder did send
+        Set<Integer> received = ConcurrentHashMap.newKeySet();
+        Snmp receiver = startReceiver(new DefaultTcpTransportMapping(new TcpAddress("127.0.0.1/11265"), true), received);
+
+        TenantConfig tenant = TenantConfig.builder()
+                .name("acme")
+                .listener(ListenerConfig.builder().bindAddress("127.0.0.1").listenPort(11170).build())
+                .v3(v3(11265, SnmpV3Config.Transport.TCP))
+                .queueCapacity(1000)
+                .build();
+        SnmpForwarderApplication app = new SnmpForwarderApplication(List.of(tenant), WorkerConfig.builder().build(),
+                AnalyticsConfig.builder().build(), ShutdownConfig.builder()
+                        .drainTimeoutMillis(20)
+                        .quietPeriodMillis(0)
+                        .maxReadMillis(0)
+                        .spillFile(spillFile.toString())
+                        .build());
+        try {
+            app.start(1);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (received.isEmpty() && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+            // Stops with traps queued, in flight and not yet replayed
+            app.stop();
+
+            int settled;
+            do {
+                settled = received.size();
+                TimeUnit.MILLISECONDS.sleep(300);
+            } while (received.size() != settled);
+        } finally {
+            receiver.close();
+        }
+
+        Set<Integer> spilled = new HashSet<>();
+        new TrapSpillStore(spillFile.toString()).replay((name, trapEvent) ->
+                spilled.add(trapEvent.getPdu().getVariable(SEQUENCE).toInt()));
+        assertFalse(spilled.isEmpty(), "drain timeout reached with traps left");
+        for (int i = 0; i < 3000; i++) {
+            assertTrue(received.contains(i) || spilled.contains(i), "trap " + i + " sent or spilled");
+        }
+    }
+
+    private void spill(Path spillFile, int count) throws Exception {
+        List<TrapEvent> spilled = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            PDU pdu = new PDU();
+            pdu.setType(PDU.TRAP);
+            pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, new OID("1.3.6.1.4.1.9999.0.4")));
+            pdu.add(new VariableBinding(SEQUENCE, new Integer32(i)));
+            spilled.add(new TrapEvent(new UdpAddress("10.0.0.1/161"), 2, "public", pdu));
+        }
+        new TrapSpillStore(spillFile.toString()).spill("acme", spilled);
+    }
+
+    private SnmpV3Config v3(int targetPort, SnmpV3Config.Transport transport) {
+        return SnmpV3Config.builder()
+                .targetHost("127.0.0.1")
+                .targetPort(targetPort)
+                .username("spillUser")
+                .authPassword("Passw0rd1!")
+                .privPassword("Passw0rd1!")
+                .engineId(ENGINE_ID)
+                .transport(transport)
+                .build();
+    }
+
+    private Snmp startReceiver(TransportMapping<?> transport, Set<Integer> received) throws Exception {
+        SecurityProtocols protocols = SecurityProtocols.getInstance();
+        protocols.addAuthenticationProtocol(new AuthSHA());
+        protocols.addPrivacyProtocol(new PrivAES128());
+        USM usm = new USM(protocols, new OctetString(MPv3.createLocalEngineID()), 0);
+        usm.addUser(new UsmUser(new OctetString("spillUser"), AuthSHA.ID, new OctetString("Passw0rd1!"),
+                PrivAES128.ID, new OctetString("Passw0rd1!")), new OctetString(HexFormat.of().parseHex(ENGINE_ID.substring(2))));
+
+        MessageDispatcherImpl dispatcher = new MessageDispatcherImpl();
+        dispatcher.addMessageProcessingModel(new MPv3(usm));
+        Snmp snmp = new Snmp(dispatcher, transport);
+        snmp.addCommandResponder(new CommandResponder() {
+            @Override
+            public <A extends Address> void processPdu(CommandResponderEvent<A> event) {
+                Variable sequence = event.getPDU().getVariable(SEQUENCE);
+                if (sequence != null) {
+                    received.add(sequence.toInt());
+                }
+            }
+        });
+        transport.listen();
+        return snmp;
+    }
+}
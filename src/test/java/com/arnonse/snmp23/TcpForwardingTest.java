@@ -0,0 +1,108 @@
+package com.arnonse.snmp23;
+
+import com.arnonse.snmp23.config.AnalyticsConfig;
+import com.arnonse.snmp23.config.ListenerConfig;
+import com.arnonse.snmp23.config.SnmpV3Config;
+import com.arnonse.snmp23.config.TenantConfig;
+import com.arnonse.snmp23.config.WorkerConfig;
+import org.junit.jupiter.api.Test;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.mp.MPv3;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.security.*;
+import org.snmp4j.smi.*;
+import org.snmp4j.transport.DefaultTcpTransportMapping;
+
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TcpForwardingTest {
+    private static final String ENGINE_ID = "0x8000047304434b4d39383736353433323132";
+
+    @Test
+    void forwardsTrapsReceivedOverTcpToTcpTarget() throws Exception {
+        BlockingQueue<CommandResponderEvent<?>> received = new LinkedBlockingQueue<>();
+        SecurityProtocols protocols = SecurityProtocols.getInstance();
+        protocols.addAuthenticationProtocol(new AuthSHA());
+        protocols.addPrivacyProtocol(new PrivAES128());
+        USM receiverUsm = new USM(protocols, new OctetString(MPv3.createLocalEngineID()), 0);
+        receiverUsm.addUser(new UsmUser(new OctetString("tcpUser"), AuthSHA.ID, new OctetString("Passw0rd1!"),
+                PrivAES128.ID, new OctetString("Passw0rd1!")), new OctetString(HexFormat.of().parseHex(ENGINE_ID.substring(2))));
+        Snmp receiver = startReceiver(receiverUsm, received);
+
+        SnmpForwarderApplication app = new SnmpForwarderApplication(
+                List.of(tenant()), WorkerConfig.builder().build(), AnalyticsConfig.builder().build());
+        DefaultTcpTransportMapping agentTransport = new DefaultTcpTransportMapping();
+        Snmp agent = new Snmp(agentTransport);
+        try {
+            app.start(1);
+            agentTransport.listen();
+
+            for (int i = 0; i < 3; i++) {
+                sendV2cTrap(agent);
+            }
+            for (int i = 0; i < 3; i++) {
+                CommandResponderEvent<?> event = received.poll(5, TimeUnit.SECONDS);
+                assertNotNull(event, "trap " + i + " forwarded over TCP");
+                assertInstanceOf(TcpAddress.class, event.getPeerAddress());
+            }
+        } finally {
+            agent.close();
+            app.stop();
+            receiver.close();
+        }
+    }
+
+    private TenantConfig tenant() {
+        return TenantConfig.builder()
+                .name("tcp")
+                .listener(ListenerConfig.builder().bindAddress("127.0.0.1").listenPort(11165).tcp(true).build())
+                .v3(SnmpV3Config.builder()
+                        .targetHost("127.0.0.1")
+                        .targetPort(11263)
+                        .username("tcpUser")
+                        .authPassword("Passw0rd1!")
+                        .privPassword("Passw0rd1!")
+                        .engineId(ENGINE_ID)
+                        .transport(SnmpV3Config.Transport.TCP)
+                        .build())
+                .build();
+    }
+
+    private Snmp startReceiver(USM usm, BlockingQueue<CommandResponderEvent<?>> received) throws Exception {
+        MessageDispatcherImpl dispatcher = new MessageDispatcherImpl();
+        dispatcher.addMessageProcessingModel(new MPv3(usm));
+        DefaultTcpTransportMapping transport = new DefaultTcpTransportMapping(new TcpAddress("127.0.0.1/11263"), true);
+        Snmp snmp = new Snmp(dispatcher, transport);
+        snmp.addCommandResponder(new CommandResponder() {
+            @Override
+            public <A extends Address> void processPdu(CommandResponderEvent<A> event) {
+                received.add(event);
+            }
+        });
+        transport.listen();
+        return snmp;
+    }
+
+    private void sendV2cTrap(Snmp agent) throws Exception {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.TRAP);
+        pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, new OID("1.3.6.1.4.1.9999.0.2")));
+
+        CommunityTarget target = new CommunityTarget();
+        target.setCommunity(new OctetString("public"));
+        target.setAddress(new TcpAddress("127.0.0.1/11165"));
+        target.setVersion(SnmpConstants.version2c);
+        agent.send(pdu, target);
+    }
+}
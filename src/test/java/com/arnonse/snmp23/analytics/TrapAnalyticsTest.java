@@ -0,0 +1,103 @@
+package com.arnonse.snmp23.analytics;
+
+import com.arnonse.snmp23.config.AnalyticsConfig;
+import com.arnonse.snmp23.model.TrapEvent;
+import org.junit.jupiter.api.Test;
+import org.snmp4j.PDU;
+import org.snmp4j.PDUv1;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.VariableBinding;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrapAnalyticsTest {
+
+    private TrapEvent trap(String source, String community, String trapOid) {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.TRAP);
+        pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, new OID(trapOid)));
+        return new TrapEvent(new UdpAddress(source), 2, community, pdu);
+    }
+
+    @Test
+    void testCountMinSketchNeverUndercounts() {
+        CountMinSketch sketch = new CountMinSketch(64, 4);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("key-" + (i % 100), 1);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(sketch.estimate("key-" + i) >= 10);
+        }
+    }
+
+    @Test
+    void testKeysWithEqualHashCodeDoNotShareCounters() {
+        // "Aa" and "BB" have the same String.hashCode, as do all concatenations of them
+        assertEquals("AaAa".hashCode(), "BBBB".hashCode());
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        sketch.add("AaAa", 100);
+
+        assertEquals(100, sketch.estimate("AaAa"));
+        assertEquals(0, sketch.estimate("BBBB"));
+    }
+
+    @Test
+    void testTopTalkersAcrossDimensions() {
+        TrapAnalytics analytics = new TrapAnalytics(AnalyticsConfig.builder().heavyHitterCapacity(8).build());
+
+        for (int i = 0; i < 50; i++) {
+            analytics.record(trap("10.0.0.1/" + (40000 + i), "public", "1.3.6.1.4.1.1.0.1"));
+        }
+        for (int i = 0; i < 20; i++) {
+            analytics.record(trap("10.0.0.2/161", "private", "1.3.6.1.4.1.1.0.2"));
+        }
+        // Long tail of one-off sources must not push out the real heavy hitters
+        for (int i = 0; i < 200; i++) {
+            analytics.record(trap("10.1." + (i / 250) + "." + (i % 250) + "/161", "public", "1.3.6.1.4.1.1.0.3"));
+        }
+
+        assertEquals(270, analytics.total());
+
+        List<HeavyHitter> sources = analytics.top(TrapAnalytics.Dimension.SOURCE, 2);
+        assertEquals(2, sources.size());
+        assertEquals("10.0.0.1", sources.get(0).key());
+        assertTrue(sources.get(0).count() >= 50);
+
+        List<HeavyHitter> communities = analytics.top(TrapAnalytics.Dimension.COMMUNITY, 5);
+        assertEquals("public", communities.get(0).key());
+        assertEquals(250, communities.get(0).count());
+
+        List<HeavyHitter> oids = analytics.top(TrapAnalytics.Dimension.TRAP_OID, 1);
+        assertEquals("1.3.6.1.4.1.1.0.3", oids.get(0).key());
+    }
+
+    @Test
+    void testWindowRotationExpiresOldBuckets() {
+        TrapAnalytics analytics = new TrapAnalytics(AnalyticsConfig.builder().bucketCount(3).build());
+        analytics.record(trap("10.0.0.1/161", "public", "1.3.6.1.4.1.1.0.1"));
+
+        analytics.rotate();
+        analytics.rotate();
+        assertEquals(1, analytics.total());
+
+        analytics.rotate();
+        assertEquals(0, analytics.total());
+        assertTrue(analytics.top(TrapAnalytics.Dimension.SOURCE, 10).isEmpty());
+    }
+
+    @Test
+    void testV1TrapOidIsDerivedFromEnterpriseAndSpecific() {
+        PDUv1 pdu = new PDUv1();
+        pdu.setEnterprise(new OID("1.3.6.1.4.1.9"));
+        pdu.setGenericTrap(PDUv1.ENTERPRISE_SPECIFIC);
+        pdu.setSpecificTrap(7);
+
+        TrapEvent event = new TrapEvent(new UdpAddress("10.0.0.1/161"), 1, "public", pdu);
+
+        assertEquals("1.3.6.1.4.1.9.0.7", TrapAnalytics.trapOidKey(event));
+    }
+}
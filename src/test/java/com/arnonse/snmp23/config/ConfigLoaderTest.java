@@ -0,0 +1,98 @@
+package com.arnonse.snmp23.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigLoaderTest {
+
+    private Properties baseProperties() {
+        Properties props = new Properties();
+        props.setProperty("listener.port", "1162");
+        props.setProperty("v3.targetHost", "192.168.9.7");
+        props.setProperty("v3.username", "AUTHENTICv3");
+        props.setProperty("v3.authPassword", "Test1234!");
+        props.setProperty("v3.privPassword", "Test1234!");
+        props.setProperty("v3.engineId", "0x8000047304434b4d39383736353433323130");
+        return props;
+    }
+
+    @Test
+    void testSingleTenantFromTopLevelKeys() {
+        List<TenantConfig> tenants = ConfigLoader.tenants(baseProperties());
+
+        assertEquals(1, tenants.size());
+        assertEquals("default", tenants.get(0).name());
+        assertEquals(1162, tenants.get(0).listener().listenPort());
+        assertEquals("AUTHENTICv3", tenants.get(0).v3().username());
+        assertEquals(0, tenants.get(0).maxTrapsPerSecond());
+    }
+
+    @Test
+    void testTenantsOverrideTopLevelKeys() {
+        Properties props = baseProperties();
+        props.setProperty("tenants", "acme, globex");
+        props.setProperty("tenant.acme.listener.port", "2162");
+        props.setProperty("tenant.acme.maxTrapsPerSecond", "500");
+        props.setProperty("tenant.globex.listener.port", "3162");
+        props.setProperty("tenant.globex.v3.username", "globexUser");
+        props.setProperty("tenant.globex.v3.targetHost", "10.0.0.5");
+
+        List<TenantConfig> tenants = ConfigLoader.tenants(props);
+
+        assertEquals(2, tenants.size());
+        TenantConfig acme = tenants.get(0);
+        assertEquals("acme", acme.name());
+        assertEquals(2162, acme.listener().listenPort());
+        assertEquals(500, acme.maxTrapsPerSecond());
+        assertEquals("192.168.9.7", acme.v3().targetHost());
+
+        TenantConfig globex = tenants.get(1);
+        assertEquals("globex", globex.name());
+        assertEquals(3162, globex.listener().listenPort());
+        assertEquals("globexUser", globex.v3().username());
+        assertEquals("10.0.0.5", globex.v3().targetHost());
+        assertEquals(acme.v3().engineId(), globex.v3().engineId());
+    }
+
+    @Test
+    void testTcpIsOptInPerTenant() {
+        Properties props = baseProperties();
+        props.setProperty("tenants", "acme,globex");
+        props.setProperty("tenant.acme.listener.port", "2162");
+        props.setProperty("tenant.globex.listener.port", "3162");
+        props.setProperty("tenant.globex.listener.tcp", "true");
+        props.setProperty("tenant.globex.v3.transport", "TCP");
+
+        List<TenantConfig> tenants = ConfigLoader.tenants(props);
+
+        assertFalse(tenants.get(0).listener().tcp());
+        assertEquals(SnmpV3Config.Transport.UDP, tenants.get(0).v3().transport());
+        assertTrue(tenants.get(1).listener().tcp());
+        assertEquals(SnmpV3Config.Transport.TCP, tenants.get(1).v3().transport());
+    }
+
+    @Test
+    void testDuplicateListenPortIsRejected() {
+        Properties props = baseProperties();
+        props.setProperty("tenants", "acme,globex");
+
+        assertThrows(IllegalArgumentException.class, () -> ConfigLoader.tenants(props));
+    }
+
+    @Test
+    void testWildcardBindConflictsWithSpecificAddressOnSamePort() {
+        Properties props = baseProperties();
+        props.setProperty("tenants", "acme,globex");
+        props.setProperty("tenant.acme.listener.bindAddress", "0.0.0.0");
+        props.setProperty("tenant.globex.listener.bindAddress", "127.0.0.1");
+
+        assertThrows(IllegalArgumentException.class, () -> ConfigLoader.tenants(props));
+
+        props.setProperty("tenant.acme.listener.bindAddress", "127.0.0.2");
+        assertEquals(2, ConfigLoader.tenants(props).size());
+    }
+}
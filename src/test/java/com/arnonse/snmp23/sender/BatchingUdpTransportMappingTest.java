@@ -0,0 +1,90 @@
+package com.arnonse.snmp23.sender;
+
+import com.arnonse.snmp23.config.SenderTransportConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.snmp4j.smi.UdpAddress;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingUdpTransportMappingTest {
+
+    private DatagramSocket receiver;
+    private UdpAddress receiverAddress;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        receiver = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        receiver.setSoTimeout(2000);
+        receiverAddress = new UdpAddress(receiver.getLocalAddress(), receiver.getLocalPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        receiver.close();
+    }
+
+    @Test
+    void testFlushesPartialBatchOnTimer() throws Exception {
+        BatchingUdpTransportMapping transport = new BatchingUdpTransportMapping(
+                SenderTransportConfig.builder().batchSize(64).flushMicros(500).build(), 2);
+        transport.listen();
+        try {
+            transport.sendMessage(receiverAddress, "one".getBytes(StandardCharsets.US_ASCII), null, 0, 0);
+
+            assertEquals("one", receive());
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    void testSendsEveryPacketFromConcurrentThreads() throws Exception {
+        BatchingUdpTransportMapping transport = new BatchingUdpTransportMapping(
+                SenderTransportConfig.builder().batchSize(8).sendBufferBytes(256 * 1024).build(), 4);
+        transport.listen();
+
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                threads.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        transport.sendMessage(receiverAddress,
+                                (thread + "-" + i).getBytes(StandardCharsets.US_ASCII), null, 0, 0);
+                    }
+                    return null;
+                });
+            }
+            threads.shutdown();
+            assertTrue(threads.awaitTermination(5, TimeUnit.SECONDS));
+        } finally {
+            transport.close();
+        }
+
+        Set<String> received = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            received.add(receive());
+        }
+        assertEquals(200, received.size());
+    }
+
+    private String receive() throws IOException {
+        DatagramPacket packet = new DatagramPacket(new byte[512], 512);
+        receiver.receive(packet);
+        return new String(packet.getData(), 0, packet.getLength(), StandardCharsets.US_ASCII);
+    }
+}
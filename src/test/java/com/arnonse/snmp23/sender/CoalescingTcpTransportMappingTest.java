@@ -0,0 +1,145 @@
+package com.arnonse.snmp23.sender;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.snmp4j.smi.TcpAddress;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescingTcpTransportMappingTest {
+
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Socket> accepted = new LinkedBlockingQueue<>();
+    private ServerSocket server;
+    private CoalescingTcpTransportMapping transport;
+
+    @BeforeEach
+    void setUp() {
+        transport = new CoalescingTcpTransportMapping();
+        transport.listen();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        transport.close();
+        if (server != null) {
+            server.close();
+        }
+        for (Socket socket : accepted) {
+            socket.close();
+        }
+    }
+
+    @Test
+    void testResendsNothingTwiceWhenTargetClosesConnection() throws Exception {
+        TcpAddress address = startServer(0);
+
+        for (int i = 0; i < 20; i++) {
+            send(address, "before-" + i);
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expected.add("before-" + i);
+        }
+        assertEquals(expected, receive(20));
+
+        Socket first = accepted.poll(5, TimeUnit.SECONDS);
+        assertNotNull(first);
+        first.close();
+        // Gives the transport time to notice the close before the next write
+        Thread.sleep(200);
+
+        expected.clear();
+        for (int i = 0; i < 20; i++) {
+            send(address, "after-" + i);
+            expected.add("after-" + i);
+        }
+        assertEquals(expected, receive(20));
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS), "no message delivered twice");
+    }
+
+    @Test
+    void testQueuesMessagesUntilTargetAcceptsConnections() throws Exception {
+        int port;
+        try (ServerSocket reserved = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            port = reserved.getLocalPort();
+        }
+        TcpAddress address = new TcpAddress(InetAddress.getLoopbackAddress(), port);
+
+        send(address, "queued-0");
+        send(address, "queued-1");
+        startServer(port);
+
+        assertEquals(List.of("queued-0", "queued-1"), receive(2));
+    }
+
+    private void send(TcpAddress address, String text) throws IOException {
+        transport.sendMessage(address, message(text), null, 0, 0);
+    }
+
+    private static byte[] message(String text) {
+        // A minimal BER sequence, which is how the target delimits SNMP messages
+        byte[] payload = text.getBytes(StandardCharsets.US_ASCII);
+        byte[] message = new byte[payload.length + 2];
+        message[0] = 0x30;
+        message[1] = (byte) payload.length;
+        System.arraycopy(payload, 0, message, 2, payload.length);
+        return message;
+    }
+
+    private List<String> receive(int count) throws InterruptedException {
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String message = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(message, "message " + i + " received");
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private TcpAddress startServer(int port) throws IOException {
+        server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        Thread.ofVirtual().start(() -> {
+            try {
+                while (true) {
+                    Socket socket = server.accept();
+                    accepted.add(socket);
+                    Thread.ofVirtual().start(() -> read(socket));
+                }
+            } catch (IOException e) {
+                // Server closed
+            }
+        });
+        return new TcpAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+    }
+
+    private void read(Socket socket) {
+        try {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            while (true) {
+                in.readUnsignedByte();
+                byte[] payload = new byte[in.readUnsignedByte()];
+                in.readFully(payload);
+                received.add(new String(payload, StandardCharsets.US_ASCII));
+            }
+        } catch (IOException e) {
+            // Connection closed
+        }
+    }
+}
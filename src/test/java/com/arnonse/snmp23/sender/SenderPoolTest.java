@@ -0,0 +1,66 @@
+package com.arnonse.snmp23.sender;
+
+import com.arnonse.snmp23.config.SenderTransportConfig;
+import com.arnonse.snmp23.config.SnmpV3Config;
+import com.arnonse.snmp23.service.EngineState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SenderPoolTest {
+    private static final String ENGINE_A = "0x8000047304434b4d39383736353433323141";
+    private static final String ENGINE_B = "0x8000047304434b4d39383736353433323142";
+
+    private final SenderPool pool = new SenderPool(SenderTransportConfig.builder().build(), 2);
+    private final List<String> engineStarts = new ArrayList<>();
+    private final Function<String, EngineState> engineStart = engineId -> {
+        engineStarts.add(engineId);
+        return new EngineState(7, 0);
+    };
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pool.close();
+    }
+
+    private SnmpV3Config profile(String engineId, String username, String password) {
+        return SnmpV3Config.builder()
+                .targetHost("127.0.0.1")
+                .targetPort(11299)
+                .username(username)
+                .authPassword(password)
+                .privPassword(password)
+                .engineId(engineId)
+                .build();
+    }
+
+    @Test
+    void testProfilesOfOneEngineShareASender() throws Exception {
+        SnmpV3TrapSender first = pool.senderFor(profile(ENGINE_A, "alice", "Passw0rd1!"), engineStart);
+        SnmpV3TrapSender second = pool.senderFor(profile(ENGINE_A, "bob", "Passw0rd2!"), engineStart);
+        SnmpV3TrapSender other = pool.senderFor(profile(ENGINE_B, "alice", "Passw0rd1!"), engineStart);
+
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertEquals(List.of(ENGINE_A, ENGINE_B), engineStarts, "each engine is started once");
+    }
+
+    @Test
+    void testConflictingCredentialsGetASiblingOnTheSameEngine() throws Exception {
+        SnmpV3Config original = profile(ENGINE_A, "alice", "Passw0rd1!");
+        SnmpV3Config conflicting = profile(ENGINE_A, "alice", "Different1!");
+
+        SnmpV3TrapSender first = pool.senderFor(original, engineStart);
+        assertFalse(first.accepts(conflicting));
+
+        SnmpV3TrapSender sibling = pool.senderFor(conflicting, engineStart);
+        assertNotSame(first, sibling);
+        assertEquals(first.getEngineBoots(), sibling.getEngineBoots(), "sibling continues the engine, no reboot");
+        assertEquals(List.of(ENGINE_A), engineStarts);
+    }
+}
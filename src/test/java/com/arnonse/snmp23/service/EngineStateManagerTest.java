@@ -0,0 +1,101 @@
+package com.arnonse.snmp23.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineStateManagerTest {
+    private static final String ENGINE_ID = "0x8000047304434b4d39383736353433323130";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testBootsIncrementAcrossInstances() {
+        String file = tempDir.resolve("engine-state.json").toString();
+
+        assertEquals(1, new EngineStateManager(file).incrementAndGetBoots(ENGINE_ID));
+        assertEquals(2, new EngineStateManager(file).incrementAndGetBoots(ENGINE_ID));
+        assertEquals(1, new EngineStateManager(file).incrementAndGetBoots("0x80001234"));
+        assertFalse(Files.exists(tempDir.resolve("engine-state.json.tmp")), "Temp file must be renamed away");
+    }
+
+    @Test
+    void testReadsLegacyFormat() throws Exception {
+        Path file = tempDir.resolve("engine-state.json");
+        Files.writeString(file, "{\n  \"" + ENGINE_ID + "\" : 41\n}");
+
+        assertEquals(42, new EngineStateManager(file.toString()).incrementAndGetBoots(ENGINE_ID));
+    }
+
+    @Test
+    void testCorruptFileIsNotResetToZero() throws Exception {
+        Path file = tempDir.resolve("engine-state.json");
+        Files.writeString(file, "{\"" + ENGINE_ID + "\" : {\"boo");
+
+        EngineStateManager manager = new EngineStateManager(file.toString());
+        assertThrows(IllegalStateException.class, () -> manager.incrementAndGetBoots(ENGINE_ID));
+    }
+
+    @Test
+    void testResumeContinuesCheckpointedEngineTime() {
+        EngineStateManager manager = new EngineStateManager(tempDir.resolve("engine-state.json").toString());
+
+        EngineState first = manager.start(ENGINE_ID, true);
+        assertEquals(new EngineState(1, 0), first);
+
+        manager.checkpoint(Map.of(ENGINE_ID, new EngineState(1, 500)));
+
+        EngineState resumed = manager.start(ENGINE_ID, true);
+        assertEquals(1, resumed.boots(), "Resume must not reboot the engine");
+        assertTrue(resumed.engineTime() > 500, "Engine time must not go backwards");
+
+        EngineState rebooted = manager.start(ENGINE_ID, false);
+        assertEquals(new EngineState(2, 0), rebooted);
+    }
+
+    @Test
+    void testCheckpointDoesNotOverwriteNewerBoot() {
+        String file = tempDir.resolve("engine-state.json").toString();
+        EngineStateManager manager = new EngineStateManager(file);
+        manager.incrementAndGetBoots(ENGINE_ID);
+        manager.incrementAndGetBoots(ENGINE_ID);
+
+        // A stale instance still running boot 1 must not roll the counter back
+        manager.checkpoint(Map.of(ENGINE_ID, new EngineState(1, 9000)));
+
+        assertEquals(3, manager.incrementAndGetBoots(ENGINE_ID));
+    }
+
+    @Test
+    void testConcurrentIncrementsAreNeverLost() throws Exception {
+        String file = tempDir.resolve("engine-state.json").toString();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                results.add(executor.submit(() -> new EngineStateManager(file).incrementAndGetBoots(ENGINE_ID)));
+            }
+            Set<Integer> boots = new HashSet<>();
+            for (Future<Integer> result : results) {
+                boots.add(result.get());
+            }
+            assertEquals(40, boots.size(), "Every start must get a distinct boot count");
+            assertEquals(41, new EngineStateManager(file).incrementAndGetBoots(ENGINE_ID));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.arnonse.snmp23.service;
+
+import com.arnonse.snmp23.model.TrapEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.snmp4j.PDU;
+import org.snmp4j.PDUv1;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrapSpillStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSpillAndReplayRoundTrip() throws Exception {
+        Path file = tempDir.resolve("spill.jsonl");
+        TrapSpillStore store = new TrapSpillStore(file.toString());
+
+        PDU v2 = new PDU();
+        v2.setType(PDU.TRAP);
+        v2.add(new VariableBinding(SnmpConstants.snmpTrapOID, new OID("1.3.6.1.4.1.9999.0.1")));
+        v2.add(new VariableBinding(new OID("1.3.6.1.4.1.9999.1"), new Counter32(42)));
+        TrapEvent v2Event = new TrapEvent(new UdpAddress("10.0.0.1/161"), 2, "public", v2);
+
+        PDUv1 v1 = new PDUv1();
+        v1.setEnterprise(new OID("1.3.6.1.4.1.9"));
+        v1.setGenericTrap(PDUv1.ENTERPRISE_SPECIFIC);
+        v1.setSpecificTrap(7);
+        v1.add(new VariableBinding(new OID("1.3.6.1.4.1.9.1"), new OctetString("down")));
+        TrapEvent v1Event = new TrapEvent(new UdpAddress("10.0.0.2/162"), 1, "private", v1);
+
+        store.spill("acme", List.of(v2Event));
+        store.spill("globex", List.of(v1Event));
+
+        List<String> tenants = new ArrayList<>();
+        List<TrapEvent> replayed = new ArrayList<>();
+        store.replay((tenant, trapEvent) -> {
+            tenants.add(tenant);
+            replayed.add(trapEvent);
+        });
+
+        assertEquals(List.of("acme", "globex"), tenants);
+        assertFalse(Files.exists(file), "Spill file must be removed after replay");
+
+        TrapEvent first = replayed.get(0);
+        assertEquals(v2Event.getSourceAddress(), first.getSourceAddress());
+        assertEquals(v2Event.getReceivedAt().toEpochMilli(), first.getReceivedAt().toEpochMilli());
+        assertEquals("public", first.getCommunity());
+        assertEquals(new Counter32(42), first.getVariableBindings().get(1).getVariable());
+
+        TrapEvent second = replayed.get(1);
+        assertInstanceOf(PDUv1.class, second.getPdu());
+        assertEquals(7, ((PDUv1) second.getPdu()).getSpecificTrap());
+        assertEquals("down", second.getVariableBindings().get(0).getVariable().toString());
+    }
+
+    @Test
+    void testReplayWithoutSpillFileDoesNothing() throws Exception {
+        TrapSpillStore store = new TrapSpillStore(tempDir.resolve("missing.jsonl").toString());
+
+        store.replay((tenant, trapEvent) -> fail("Nothing should be replayed"));
+    }
+
+    @Test
+    void testInterruptedReplayKeepsTheRemainder() throws Exception {
+        Path file = tempDir.resolve("spill.jsonl");
+        TrapSpillStore store = new TrapSpillStore(file.toString());
+        List<TrapEvent> events = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            PDU pdu = new PDU();
+            pdu.setType(PDU.TRAP);
+            pdu.add(new VariableBinding(new OID("1.3.6.1.4.1.9999.2"), new Integer32(i)));
+            events.add(new TrapEvent(new UdpAddress("10.0.0.1/161"), 2, "public", pdu));
+        }
+        store.spill("acme", events);
+
+        List<TrapEvent> replayed = new ArrayList<>();
+        store.replay((tenant, trapEvent) -> {
+            if (replayed.size() == 2) {
+                // The consumer gives up on the third trap without accepting it
+                Thread.currentThread().interrupt();
+                return;
+            }
+            replayed.add(trapEvent);
+        });
+        assertTrue(Thread.interrupted());
+        assertFalse(Files.exists(tempDir.resolve("spill.jsonl.tmp")), "remainder renamed over the spill file");
+
+        List<TrapEvent> kept = new ArrayList<>();
+        store.replay((tenant, trapEvent) -> kept.add(trapEvent));
+        assertEquals(2, replayed.size());
+        assertEquals(3, kept.size());
+        assertEquals(new Integer32(2), kept.get(0).getVariableBindings().get(0).getVariable());
+    }
+}
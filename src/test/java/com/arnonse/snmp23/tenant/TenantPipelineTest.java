@@ -0,0 +1,153 @@
+package com.arnonse.snmp23.tenant;
+
+import com.arnonse.snmp23.config.ListenerConfig;
+import com.arnonse.snmp23.config.SnmpV3Config;
+import com.arnonse.snmp23.config.TenantConfig;
+import com.arnonse.snmp23.model.TrapEvent;
+import com.arnonse.snmp23.sender.SnmpV3TrapSender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.snmp4j.PDU;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.VariableBinding;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantPipelineTest {
+
+    // Runs the drain tasks only when the test says so, in submission order
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final Executor sendWorkers = tasks::add;
+    private SnmpV3TrapSender sender;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Nothing listens on the target port; UDP sends succeed regardless
+        sender = new SnmpV3TrapSender(SnmpV3Config.builder()
+                .targetHost("127.0.0.1")
+                .targetPort(11299)
+                .username("pipelineUser")
+                .authPassword("Passw0rd1!")
+                .privPassword("Passw0rd1!")
+                .engineId("0x8000047304434b4d39383736353433323133")
+                .build());
+        sender.initialize(1);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        sender.close();
+    }
+
+    private TenantPipeline pipeline(String name, int queueCapacity, int maxTrapsPerSecond) {
+        TenantConfig tenant = TenantConfig.builder()
+                .name(name)
+                .listener(ListenerConfig.builder().build())
+                .v3(sender.getConfig())
+                .queueCapacity(queueCapacity)
+                .maxTrapsPerSecond(maxTrapsPerSecond)
+                .build();
+        return new TenantPipeline(tenant, sender, sendWorkers);
+    }
+
+    private TrapEvent trap() {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.TRAP);
+        pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, new OID("1.3.6.1.4.1.9999.0.3")));
+        return new TrapEvent(new UdpAddress("10.0.0.1/161"), 2, "public", pdu);
+    }
+
+    @Test
+    void testQueueOverflowIsDroppedAndCounted() {
+        TenantPipeline pipeline = pipeline("small", 10, 0);
+
+        for (int i = 0; i < 25; i++) {
+            assertTrue(pipeline.submit(trap()));
+        }
+
+        assertEquals(10, pipeline.getQueueSize());
+        assertEquals(15, pipeline.getOverflowCount());
+        assertEquals(0, pipeline.getRateLimitedCount());
+        assertEquals(1, tasks.size(), "one drain task per tenant at a time");
+    }
+
+    @Test
+    void testRateLimitDropsBeyondBurst() {
+        TenantPipeline pipeline = pipeline("limited", 1000, 20);
+
+        for (int i = 0; i < 100; i++) {
+            pipeline.submit(trap());
+        }
+
+        // Allow a token or two to refill while the loop ran
+        assertTrue(pipeline.getQueueSize() >= 20 && pipeline.getQueueSize() <= 22);
+        assertEquals(100, pipeline.getQueueSize() + pipeline.getRateLimitedCount());
+    }
+
+    @Test
+    void testFloodingTenantDoesNotStarveAnother() {
+        TenantPipeline noisy = pipeline("noisy", 5000, 0);
+        TenantPipeline quiet = pipeline("quiet", 100, 0);
+
+        for (int i = 0; i < 10000; i++) {
+            noisy.submit(trap());
+        }
+        for (int i = 0; i < 10; i++) {
+            assertTrue(quiet.submit(trap()));
+        }
+        assertEquals(5000, noisy.getOverflowCount());
+        assertEquals(0, quiet.getOverflowCount());
+        assertEquals(10, quiet.getQueueSize());
+
+        // The noisy drain yields after one batch, so the quiet tenant's drain runs next
+        tasks.poll().run();
+        tasks.poll().run();
+
+        assertEquals(0, quiet.getQueueSize());
+        assertTrue(noisy.getQueueSize() > 4000, "noisy tenant still has most of its backlog");
+    }
+
+    @Test
+    void testResubmitLeavesRoomForLiveTraps() throws Exception {
+        TenantPipeline pipeline = pipeline("replaying", 10, 0);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(pipeline.resubmit(trap()));
+        }
+        Thread resubmitter = Thread.ofVirtual().start(() -> {
+            try {
+                pipeline.resubmit(trap());
+            } catch (InterruptedException e) {
+                // Given up by the test
+            }
+        });
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(pipeline.submit(trap()));
+        }
+        assertEquals(0, pipeline.getOverflowCount());
+        assertEquals(10, pipeline.getQueueSize());
+
+        resubmitter.interrupt();
+        resubmitter.join(1000);
+        assertEquals(10, pipeline.getQueueSize(), "the waiting resubmit did not take live capacity");
+    }
+
+    @Test
+    void testRetiredPipelineRedirectsAndReturnsUnsent() throws Exception {
+        TenantPipeline pipeline = pipeline("retired", 100, 0);
+        for (int i = 0; i < 5; i++) {
+            pipeline.submit(trap());
+        }
+
+        assertFalse(pipeline.retire(0), "nothing drained yet");
+        assertFalse(pipeline.submit(trap()));
+        assertEquals(5, pipeline.takeRemaining().size());
+    }
+}
@@ -0,0 +1,40 @@
+package com.arnonse.snmp23.tenant;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private int acquireAll(TokenBucket bucket) {
+        int acquired = 0;
+        while (bucket.tryAcquire()) {
+            acquired++;
+        }
+        return acquired;
+    }
+
+    @Test
+    void testBurstIsOneSecondOfRate() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(100, now::get);
+
+        assertEquals(100, acquireAll(bucket));
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void testRefillsWithElapsedTimeUpToCapacity() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(100, now::get);
+        acquireAll(bucket);
+
+        now.addAndGet(500_000_000L);
+        assertEquals(50, acquireAll(bucket));
+
+        now.addAndGet(10_000_000_000L);
+        assertEquals(100, acquireAll(bucket));
+    }
+}